@@ -0,0 +1,144 @@
+package com.frubana.operations.logistics.yms.benchmark;
+
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+
+import java.io.IOException;
+
+/** An embedded Postgresql with the migrations of the service applied, used
+ * by the benchmarks that go to the database.
+ * <p> Each instance starts its own server in a random port and deletes it
+ * when closed, so it must be created in a trial setup and closed in the
+ * trial tear down.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    /** Inserts a yard without vehicle type. */
+    private static final String INSERT_SQL_QUERY = "Insert into yard" +
+            " (color, warehouse, assignation_number, occupied)" +
+            " values(:color, :warehouse, :assignation_number, :occupied)";
+
+    /** The running server, it's never null. */
+    private final EmbeddedPostgres postgres;
+
+    /** The pool of connections to the server, like the one of the
+     * service, it's never null. */
+    private final HikariDataSource dataSource;
+
+    /** The JDBI instance of the server, it's never null. */
+    private final Jdbi jdbi;
+
+    /** Starts the server and applies the migrations, the JDBI instance is
+     * configured like the one of the service.
+     *
+     * @throws IOException if the server cannot be started.
+     */
+    public BenchmarkDatabase() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .locations("classpath:migrations")
+                .load()
+                .migrate();
+        dataSource = new HikariDataSource();
+        dataSource.setDataSource(postgres.getPostgresDatabase());
+        dataSource.setMaximumPoolSize(10);
+        jdbi = Jdbi.create(dataSource)
+                .installPlugin(new SqlObjectPlugin())
+                .registerRowMapper(new YardRepository.YardMapper());
+    }
+
+    /** Obtains the JDBI instance of the server.
+     *
+     * @return the JDBI instance, never null.
+     */
+    public Jdbi jdbi() {
+        return jdbi;
+    }
+
+    /** Obtains the pool of connections to the server.
+     *
+     * @return the pool, never null.
+     */
+    public HikariDataSource dataSource() {
+        return dataSource;
+    }
+
+    /** Obtains the JDBC URL of the server, to connect the service to it.
+     *
+     * @return the JDBC URL of the postgres database as the postgres user.
+     */
+    public String jdbcUrl() {
+        return postgres.getJdbcUrl("postgres", "postgres");
+    }
+
+    /** Inserts yards of a color in a warehouse with the assignation numbers
+     * from 1 to the count, one of each 3 yards is occupied.
+     *
+     * @param warehouse the warehouse of the yards.
+     * @param color     the color of the yards.
+     * @param count     the number of yards to insert.
+     */
+    public void insertYards(String warehouse, String color, int count) {
+        jdbi.useHandle(handle -> {
+            insert(handle, warehouse, color, count);
+            handle.execute("ANALYZE yard");
+        });
+    }
+
+    /** Inserts the yards of several warehouses, named like
+     * {@link BenchmarkYards#warehouse(int)}, each one with the same number
+     * of yards of each color of {@link BenchmarkYards#COLORS}.
+     *
+     * @param warehouses the number of warehouses.
+     * @param perColor   the number of yards of each color in a warehouse.
+     */
+    public void insertWarehouses(int warehouses, int perColor) {
+        jdbi.useHandle(handle -> {
+            for (int warehouse = 0; warehouse < warehouses; warehouse++) {
+                for (String color : BenchmarkYards.COLORS) {
+                    insert(handle, BenchmarkYards.warehouse(warehouse),
+                            color, perColor);
+                }
+            }
+            handle.execute("ANALYZE yard");
+        });
+    }
+
+    /** Inserts yards of a color in a warehouse in one batch.
+     *
+     * @param handle    the handle of the inserts.
+     * @param warehouse the warehouse of the yards.
+     * @param color     the color of the yards.
+     * @param count     the number of yards to insert.
+     */
+    private static void insert(Handle handle, String warehouse, String color,
+                               int count) {
+        try (PreparedBatch batch = handle.prepareBatch(INSERT_SQL_QUERY)) {
+            for (int number = 1; number <= count; number++) {
+                batch.bind("color", color)
+                        .bind("warehouse", warehouse)
+                        .bind("assignation_number", number)
+                        .bind("occupied", number % 3 == 0)
+                        .add();
+            }
+            batch.execute();
+        }
+    }
+
+    /** Stops the server and deletes its data.
+     *
+     * @throws IOException if the server cannot be stopped.
+     */
+    @Override
+    public void close() throws IOException {
+        dataSource.close();
+        postgres.close();
+    }
+}
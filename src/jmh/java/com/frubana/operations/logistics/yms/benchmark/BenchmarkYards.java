@@ -0,0 +1,56 @@
+package com.frubana.operations.logistics.yms.benchmark;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Creates in-memory yards for the benchmarks that do not go to the
+ * database.
+ */
+public final class BenchmarkYards {
+
+    /** The colors of the created yards. */
+    public static final String[] COLORS =
+            {"#ff0000", "#00ff00", "#0000ff", "#ffff00"};
+
+    /** Private constructor, it's a utility class.
+     */
+    private BenchmarkYards() {
+    }
+
+    /** Obtains the name of a warehouse of the benchmarks.
+     *
+     * @param index the index of the warehouse, from 0.
+     * @return the name of the warehouse.
+     */
+    public static String warehouse(int index) {
+        return "WH" + index;
+    }
+
+    /** Creates the yards of several warehouses, each warehouse with the
+     * same number of yards of each color, interleaved like the rows of the
+     * table ordered by id.
+     *
+     * @param warehouses the number of warehouses.
+     * @param perColor   the number of yards of each color in a warehouse.
+     * @return the created yards.
+     */
+    public static List<Yard> create(int warehouses, int perColor) {
+        List<Yard> yards =
+                new ArrayList<>(warehouses * perColor * COLORS.length);
+        int id = 1;
+        for (int number = 1; number <= perColor; number++) {
+            for (int warehouse = 0; warehouse < warehouses; warehouse++) {
+                for (String color : COLORS) {
+                    Yard yard = new Yard(id++, color, number,
+                            number % 3 == 0);
+                    yard.assignWarehouse(warehouse(warehouse));
+                    yard.setVehicleType(number % 4);
+                    yards.add(yard);
+                }
+            }
+        }
+        return yards;
+    }
+}
@@ -0,0 +1,66 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkYards;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the cost of {@link FormattedLogger#logInfo} for the caller with
+ * params that have 10, 100 and 1000 yards, like the logs of the
+ * registrations and listings.
+ * <p> The logs are written by the appenders of log4j2-benchmark.xml, set
+ * by the benchmark profile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormattedLoggerBenchmark {
+
+    /** The logger of the messages. */
+    private final Logger logger =
+            LoggerFactory.getLogger(FormattedLoggerBenchmark.class);
+
+    /** The subject. */
+    private final FormattedLogger logFormatter = new FormattedLogger();
+
+    /** The number of yards in the params. */
+    @Param({"10", "100", "1000"})
+    public int yards;
+
+    /** The params of each log. */
+    private Map<String, Object> params;
+
+    /** Creates the params.
+     */
+    @Setup
+    public void setUp() {
+        params = new HashMap<>();
+        params.put("warehouse", "PA");
+        params.put("yards", BenchmarkYards.create(1, yards / 4));
+        params.put("count", yards);
+    }
+
+    /** Logs an info message with the params.
+     */
+    @Benchmark
+    public void logInfo() {
+        logFormatter.logInfo(logger, "logInfo", "Received request", params);
+    }
+}
@@ -0,0 +1,100 @@
+package com.frubana.operations.logistics.yms.yard.application;
+
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkYards;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the grouping of the yards done by the listings of
+ * {@link YardController} and the serialization of the grouped yards, with
+ * 10, 100 and 1000 yards of each color in each of 10 warehouses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YardGroupingBenchmark {
+
+    /** The number of warehouses of the yards. */
+    private static final int WAREHOUSES = 10;
+
+    /** The number of yards of each color in each warehouse. */
+    @Param({"10", "100", "1000"})
+    public int yardsPerColor;
+
+    /** The yards of all the warehouses. */
+    private List<Yard> yards;
+
+    /** The yards of one warehouse. */
+    private List<Yard> warehouseYards;
+
+    /** The yards of all the warehouses grouped by warehouse. */
+    private HashMap<String, List<Yard>> byWarehouse;
+
+    /** Creates the yards.
+     */
+    @Setup
+    public void setUp() {
+        yards = BenchmarkYards.create(WAREHOUSES, yardsPerColor);
+        warehouseYards = BenchmarkYards.create(1, yardsPerColor);
+        byWarehouse = YardController.groupYards(yards, Yard::getWarehouse);
+    }
+
+    /** Groups the yards of a warehouse by color, like
+     * {@link YardController#getAllYardsInWarehouse}.
+     *
+     * @return the grouped yards.
+     */
+    @Benchmark
+    public HashMap<String, List<Yard>> groupByColor() {
+        return YardController.groupYards(warehouseYards, Yard::getColor);
+    }
+
+    /** Groups the yards of all the warehouses by warehouse, like
+     * {@link YardController#getAllYardsByWarehouse}.
+     *
+     * @return the grouped yards.
+     */
+    @Benchmark
+    public HashMap<String, List<Yard>> groupByWarehouse() {
+        return YardController.groupYards(yards, Yard::getWarehouse);
+    }
+
+    /** Serializes the yards of a warehouse.
+     *
+     * @return the JSON of the yards.
+     * @throws IOException if the yards cannot be serialized.
+     */
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return JsonUtils.instance.writeValueAsBytes(warehouseYards);
+    }
+
+    /** Serializes the yards of all the warehouses grouped by warehouse, the
+     * body of {@link YardController#getAllYardsByWarehouse}.
+     *
+     * @return the JSON of the yards.
+     * @throws IOException if the yards cannot be serialized.
+     */
+    @Benchmark
+    public byte[] serializeGrouped() throws IOException {
+        return JsonUtils.instance.writeValueAsBytes(byWarehouse);
+    }
+}
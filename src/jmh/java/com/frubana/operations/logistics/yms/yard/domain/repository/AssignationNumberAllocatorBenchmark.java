@@ -0,0 +1,104 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkDatabase;
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkYards;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the allocation of the next assignation number with 10, 100 and
+ * 1000 yards of each color, the worst case where the used numbers have no
+ * gaps.
+ * <p> Each allocation runs in its own transaction that is rolled back, so
+ * the yards do not change between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssignationNumberAllocatorBenchmark {
+
+    /** The warehouse of the yards. */
+    private static final String WAREHOUSE = "PA";
+
+    /** The number of yards of each color in the warehouse. */
+    @Param({"10", "100", "1000"})
+    public int yardsPerColor;
+
+    /** The database with the yards. */
+    private BenchmarkDatabase database;
+
+    /** The subject. */
+    private final AssignationNumberAllocator allocator =
+            new AssignationNumberAllocator();
+
+    /** The yards of a bulk registration, 5 of each color. */
+    private final Map<String, Integer> counts = Map.of(
+            BenchmarkYards.COLORS[0], 5, BenchmarkYards.COLORS[1], 5,
+            BenchmarkYards.COLORS[2], 5, BenchmarkYards.COLORS[3], 5);
+
+    /** Starts the database and inserts the yards.
+     *
+     * @throws IOException if the database cannot be started.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        database = new BenchmarkDatabase();
+        for (String color : BenchmarkYards.COLORS) {
+            database.insertYards(WAREHOUSE, color, yardsPerColor);
+        }
+    }
+
+    /** Stops the database.
+     *
+     * @throws IOException if the database cannot be stopped.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    /** Allocates the number of a single registration.
+     *
+     * @return the allocated number.
+     */
+    @Benchmark
+    public int next() {
+        return database.jdbi().inTransaction(handle -> {
+            int number = allocator.next(handle, WAREHOUSE,
+                    BenchmarkYards.COLORS[0]);
+            handle.rollback();
+            return number;
+        });
+    }
+
+    /** Allocates the numbers of a bulk registration of 20 yards.
+     *
+     * @return the allocated numbers.
+     */
+    @Benchmark
+    public Map<String, List<Integer>> nextBulk() {
+        return database.jdbi().inTransaction(handle -> {
+            Map<String, List<Integer>> numbers =
+                    allocator.next(handle, WAREHOUSE, counts);
+            handle.rollback();
+            return numbers;
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkDatabase;
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkYards;
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.jdbi.v3.core.Handle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the mapping of the rows of the yard table and the read of the
+ * yards of a warehouse, with 10, 100 and 1000 yards of each color.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YardMapperBenchmark {
+
+    /** The warehouse of the yards. */
+    private static final String WAREHOUSE = "PA";
+
+    /** The number of yards of each color in the warehouse. */
+    @Param({"10", "100", "1000"})
+    public int yardsPerColor;
+
+    /** The database with the yards. */
+    private BenchmarkDatabase database;
+
+    /** The handle that keeps the result set open. */
+    private Handle handle;
+
+    /** The rows of the warehouse, read once and mapped on each
+     * invocation. */
+    private ResultSet rows;
+
+    /** The subject of the mapping benchmark. */
+    private final YardRepository.YardMapper mapper =
+            new YardRepository.YardMapper();
+
+    /** The subject of the read benchmark. */
+    private YardRepository repository;
+
+    /** Starts the database, inserts the yards and reads them once.
+     *
+     * @throws IOException  if the database cannot be started.
+     * @throws SQLException if the yards cannot be read.
+     */
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        database = new BenchmarkDatabase();
+        for (String color : BenchmarkYards.COLORS) {
+            database.insertYards(WAREHOUSE, color, yardsPerColor);
+        }
+        handle = database.jdbi().open();
+        Statement statement = handle.getConnection().createStatement(
+                ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rows = statement.executeQuery(YardRepository.SELECT_YARD_SQL_QUERY +
+                " where warehouse = '" + WAREHOUSE + "'");
+        ReadRouter router =
+                new ReadRouter(database.jdbi(), database.jdbi(), 0);
+        repository = new YardRepository(database.jdbi(), router,
+                new AssignationNumberAllocator(),
+                new OccupancyEventRepository(database.jdbi(), router,
+                        database.dataSource(), new FormattedLogger()));
+    }
+
+    /** Closes the result set and stops the database.
+     *
+     * @throws IOException  if the database cannot be stopped.
+     * @throws SQLException if the result set cannot be closed.
+     */
+    @TearDown
+    public void tearDown() throws IOException, SQLException {
+        rows.getStatement().close();
+        handle.close();
+        database.close();
+    }
+
+    /** Maps all the rows of the warehouse, without going to the database.
+     *
+     * @param blackhole consumes the mapped yards.
+     * @throws SQLException if a field cannot be read.
+     */
+    @Benchmark
+    public void map(Blackhole blackhole) throws SQLException {
+        rows.beforeFirst();
+        while (rows.next()) {
+            blackhole.consume(mapper.map(rows, null));
+        }
+    }
+
+    /** Reads and maps the yards of the warehouse from the database.
+     *
+     * @return the yards of the warehouse.
+     */
+    @Benchmark
+    public List<Yard> getByWarehouse() {
+        return repository.getByWarehouse(WAREHOUSE);
+    }
+}
@@ -0,0 +1,194 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkDatabase;
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkYards;
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the hot queries of the yards with 100k yards, 100 warehouses
+ * with 250 yards of each color, with and without the indexes of the
+ * access paths.
+ * <p> Without indexes the unique constraint and the free docks index are
+ * dropped after the migrations, so each query scans the whole table. The
+ * plan of each query is printed in the setup to compare both cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class YardQueryPlanBenchmark {
+
+    /** The number of warehouses. */
+    private static final int WAREHOUSES = 100;
+
+    /** The number of yards of each color in a warehouse. */
+    private static final int YARDS_PER_COLOR = 250;
+
+    /** The first free dock of a warehouse and color. */
+    private static final String FIRST_FREE_SQL_QUERY =
+            YardRepository.SELECT_YARD_SQL_QUERY +
+            " WHERE warehouse = :warehouse and color = :color" +
+            " and occupied IS NOT TRUE" +
+            " ORDER BY assignation_number LIMIT 1";
+
+    /** Whether the indexes of the migrations are kept. */
+    @Param({"true", "false"})
+    public boolean indexes;
+
+    /** The database with the yards. */
+    private BenchmarkDatabase database;
+
+    /** The subject of the reads and writes. */
+    private YardRepository repository;
+
+    /** The allocator of the assignation numbers. */
+    private final AssignationNumberAllocator allocator =
+            new AssignationNumberAllocator();
+
+    /** Starts the database, inserts the yards and prints the plans.
+     *
+     * @throws IOException if the database cannot be started.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        database = new BenchmarkDatabase();
+        if (!indexes) {
+            database.jdbi().useHandle(handle -> {
+                handle.execute("ALTER TABLE yard DROP CONSTRAINT" +
+                        " \"uq_yard__warehouse_color_assignation_number\"");
+                handle.execute("DROP INDEX \"ix_yard__free_docks\"");
+            });
+        }
+        database.insertWarehouses(WAREHOUSES, YARDS_PER_COLOR);
+        ReadRouter router =
+                new ReadRouter(database.jdbi(), database.jdbi(), 0);
+        repository = new YardRepository(database.jdbi(), router,
+                new AssignationNumberAllocator(),
+                new OccupancyEventRepository(database.jdbi(), router,
+                        database.dataSource(), new FormattedLogger()));
+
+        String warehouse = BenchmarkYards.warehouse(WAREHOUSES / 2);
+        String color = BenchmarkYards.COLORS[0];
+        explain("getByWarehouse", YardRepository.SELECT_YARD_SQL_QUERY +
+                " where warehouse = '" + warehouse + "'" +
+                " order by assignation_number");
+        explain("firstFreeDock", FIRST_FREE_SQL_QUERY
+                .replace(":warehouse", "'" + warehouse + "'")
+                .replace(":color", "'" + color + "'"));
+        explain("ocuparMuelle", "UPDATE yard SET occupied = true" +
+                " WHERE assignation_number = 1" +
+                " and warehouse = '" + warehouse + "'" +
+                " and color = '" + color + "' RETURNING *");
+    }
+
+    /** Prints the plan of a query, run in a transaction that is rolled
+     * back so the writes do not change the yards.
+     *
+     * @param name  the name of the query.
+     * @param query the query without params.
+     */
+    private void explain(String name, String query) {
+        List<String> plan = database.jdbi().inTransaction(handle -> {
+            List<String> lines = handle.createQuery(
+                    "EXPLAIN (ANALYZE, BUFFERS) " + query)
+                    .mapTo(String.class).list();
+            handle.rollback();
+            return lines;
+        });
+        System.out.println("Plan of " + name + " with indexes=" + indexes);
+        plan.forEach(line -> System.out.println("  " + line));
+    }
+
+    /** Stops the database.
+     *
+     * @throws IOException if the database cannot be stopped.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        database.close();
+    }
+
+    /** Obtains a random warehouse of the yards.
+     *
+     * @return the name of the warehouse.
+     */
+    private static String randomWarehouse() {
+        return BenchmarkYards.warehouse(
+                ThreadLocalRandom.current().nextInt(WAREHOUSES));
+    }
+
+    /** Reads the yards of a random warehouse.
+     *
+     * @return the yards.
+     */
+    @Benchmark
+    public List<Yard> getByWarehouse() {
+        return repository.getByWarehouse(randomWarehouse());
+    }
+
+    /** Searches the first free dock of a random warehouse and color.
+     *
+     * @return the free dock.
+     */
+    @Benchmark
+    public Optional<Yard> firstFreeDock() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return database.jdbi().withHandle(handle -> handle
+                .createQuery(FIRST_FREE_SQL_QUERY)
+                .bind("warehouse", randomWarehouse())
+                .bind("color", BenchmarkYards.COLORS[
+                        random.nextInt(BenchmarkYards.COLORS.length)])
+                .mapTo(Yard.class)
+                .findFirst());
+    }
+
+    /** Occupies a random dock, the docks occupied by the seed stay
+     * occupied.
+     *
+     * @return the occupied dock.
+     */
+    @Benchmark
+    public Optional<Yard> ocuparMuelle() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Yard yard = new Yard(0, BenchmarkYards.COLORS[
+                random.nextInt(BenchmarkYards.COLORS.length)],
+                1 + random.nextInt(YARDS_PER_COLOR), false);
+        yard.assignWarehouse(randomWarehouse());
+        return repository.ocuparMuelle(yard);
+    }
+
+    /** Allocates the number of a registration in a random warehouse, in a
+     * transaction that is rolled back.
+     *
+     * @return the allocated number.
+     */
+    @Benchmark
+    public int nextAssignationNumber() {
+        return database.jdbi().inTransaction(handle -> {
+            int number = allocator.next(handle, randomWarehouse(),
+                    BenchmarkYards.COLORS[0]);
+            handle.rollback();
+            return number;
+        });
+    }
+}
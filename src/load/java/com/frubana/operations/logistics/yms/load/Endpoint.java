@@ -0,0 +1,50 @@
+package com.frubana.operations.logistics.yms.load;
+
+import java.util.Locale;
+
+/** The endpoints of the service driven by the load test.
+ */
+enum Endpoint {
+    /** A board polling the yards of a warehouse with its ETag. */
+    POLL(60),
+    /** A read of a single yard. */
+    READ(10),
+    /** The gate occupying a dock. */
+    OCCUPY(12),
+    /** The gate freeing a dock. */
+    FREE(12),
+    /** A registration of a new dock. */
+    REGISTER(3),
+    /** An update of a dock. */
+    UPDATE(3);
+
+    /** The weight of the endpoint in the default traffic. */
+    private final int defaultWeight;
+
+    /** Constructor.
+     *
+     * @param defaultWeight the weight in the default traffic.
+     */
+    Endpoint(int defaultWeight) {
+        this.defaultWeight = defaultWeight;
+    }
+
+    /** Obtains the weight of the endpoint in the default traffic.
+     *
+     * @return the weight.
+     */
+    int getDefaultWeight() {
+        return defaultWeight;
+    }
+
+    /** Obtains the endpoint of the given name, ignoring the case.
+     *
+     * @param name the name, like poll.
+     * @return the endpoint.
+     * @throws IllegalArgumentException if there is no endpoint with the
+     *                                  name.
+     */
+    static Endpoint of(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
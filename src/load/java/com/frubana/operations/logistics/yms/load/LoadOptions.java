@@ -0,0 +1,129 @@
+package com.frubana.operations.logistics.yms.load;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/** The options of a load test, parsed from arguments like --rps=500.
+ * <p> The arguments that are not options of the load test are passed to
+ * the service, for example --spring.datasource.hikari.maximum-pool-size=20.
+ */
+class LoadOptions {
+
+    /** Number of warehouses seeded. */
+    int warehouses = 5;
+
+    /** Number of docks seeded in each warehouse. */
+    int docks = 200;
+
+    /** Requests started per second. */
+    int rps = 200;
+
+    /** Seconds of traffic before the measurement starts. */
+    int warmupSeconds = 10;
+
+    /** Seconds of traffic measured. */
+    int durationSeconds = 60;
+
+    /** Max requests waiting for their response, the next requests wait and
+     * their wait is part of their latency. */
+    int maxInFlight = 256;
+
+    /** The weight of each endpoint in the traffic. */
+    final Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+
+    /** The arguments passed to the service. */
+    final List<String> serviceArgs = new ArrayList<>();
+
+    /** Creates the default options, a traffic dominated by the polls of
+     * the boards with the gate occupying and freeing docks.
+     */
+    LoadOptions() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            mix.put(endpoint, endpoint.getDefaultWeight());
+        }
+    }
+
+    /** Parses the arguments of the load test.
+     *
+     * @param args the arguments, like --rps=500 or
+     *             --mix=poll:70,occupy:15,free:15.
+     * @return the options.
+     * @throws IllegalArgumentException if an option has an invalid value.
+     */
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            String name = separator < 0 ? arg : arg.substring(0, separator);
+            String value = separator < 0 ? "" : arg.substring(separator + 1);
+            switch (name) {
+                case "--warehouses":
+                    options.warehouses = positive(name, value);
+                    break;
+                case "--docks":
+                    options.docks = positive(name, value);
+                    break;
+                case "--rps":
+                    options.rps = positive(name, value);
+                    break;
+                case "--warmup":
+                    options.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "--duration":
+                    options.durationSeconds = positive(name, value);
+                    break;
+                case "--max-in-flight":
+                    options.maxInFlight = positive(name, value);
+                    break;
+                case "--mix":
+                    options.parseMix(value);
+                    break;
+                default:
+                    options.serviceArgs.add(arg);
+            }
+        }
+        return options;
+    }
+
+    /** Replaces the weights of the endpoints, the missing endpoints get no
+     * traffic.
+     *
+     * @param value the weights, like poll:70,occupy:15,free:15.
+     * @throws IllegalArgumentException if the mix is invalid.
+     */
+    private void parseMix(String value) {
+        mix.replaceAll((endpoint, weight) -> 0);
+        for (String entry : value.split(",")) {
+            String[] weight = entry.split(":");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException(
+                        "Invalid mix entry, expected endpoint:weight: "
+                                + entry);
+            }
+            mix.put(Endpoint.of(weight[0].trim()),
+                    Integer.parseInt(weight[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException(
+                    "The mix must have some traffic: " + value);
+        }
+    }
+
+    /** Parses a positive option.
+     *
+     * @param name  the name of the option.
+     * @param value the value of the option.
+     * @return the parsed value.
+     * @throws IllegalArgumentException if the value is not positive.
+     */
+    private static int positive(String name, String value) {
+        int parsed = Integer.parseInt(value);
+        if (parsed <= 0) {
+            throw new IllegalArgumentException(
+                    name + " must be positive: " + value);
+        }
+        return parsed;
+    }
+}
@@ -0,0 +1,408 @@
+package com.frubana.operations.logistics.yms.load;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.frubana.operations.logistics.yms.YardManagementSystemApplication;
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkDatabase;
+import com.frubana.operations.logistics.yms.benchmark.BenchmarkYards;
+import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/** Drives a mix of board polls, reads, registrations, occupancy changes and
+ * updates against the service running on an embedded Postgresql, and
+ * reports the latency percentiles and the throughput of each endpoint.
+ * <p> The requests are started at a fixed rate whatever the latency of the
+ * previous ones, and the latency of each request is measured from the time
+ * it should have started, so a slow service is not hidden by the load test
+ * sending fewer requests.
+ * <p> Run it with the benchmark profile:
+ * <code>
+ * mvn -P benchmark test-compile exec:exec@load-test
+ *     -Dload.args="--rps=500 --duration=120"
+ * </code>
+ */
+public final class YardLoadTest {
+
+    /** The base path of the yard endpoints. */
+    private static final String YARD_PATH = "/yms/yard";
+
+    /** The highest latency tracked, higher latencies are recorded as it. */
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /** Nanoseconds in a millisecond, to report the latencies. */
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    /** The options of the run. */
+    private final LoadOptions options;
+
+    /** The base URI of the running service. */
+    private final String baseUri;
+
+    /** The seeded docks, the targets of the reads, occupancy changes and
+     * updates. */
+    private final List<Yard> docks;
+
+    /** The client of the service. */
+    private final HttpClient client;
+
+    /** The latencies of each endpoint in nanoseconds. */
+    private final Map<Endpoint, Histogram> latencies =
+            new EnumMap<>(Endpoint.class);
+
+    /** The failed requests of each endpoint. */
+    private final Map<Endpoint, LongAdder> errors =
+            new EnumMap<>(Endpoint.class);
+
+    /** The last ETag received by the board of each warehouse. */
+    private final Map<String, String> boardTags = new ConcurrentHashMap<>();
+
+    /** The endpoints by their cumulative weight in the traffic. */
+    private final Endpoint[] endpoints;
+
+    /** The cumulative weights of the endpoints. */
+    private final int[] weights;
+
+    /** Constructor.
+     *
+     * @param options the options of the run.
+     * @param port    the port of the running service.
+     * @param docks   the seeded docks.
+     */
+    private YardLoadTest(LoadOptions options, int port, List<Yard> docks) {
+        this.options = options;
+        this.baseUri = "http://localhost:" + port + YARD_PATH;
+        this.docks = docks;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<Endpoint> weighted = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentHistogram(
+                    MAX_LATENCY_NANOS, 3));
+            errors.put(endpoint, new LongAdder());
+            int weight = options.mix.get(endpoint);
+            if (weight > 0) {
+                total += weight;
+                weighted.add(endpoint);
+                cumulative.add(total);
+            }
+        }
+        this.endpoints = weighted.toArray(new Endpoint[0]);
+        this.weights = cumulative.stream().mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /** Starts the database and the service, seeds the docks and runs the
+     * load test.
+     *
+     * @param args the options of the load test and the arguments of the
+     *             service, see {@link LoadOptions}.
+     * @throws IOException          if the database cannot be started.
+     * @throws InterruptedException if the run is interrupted.
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        LoadOptions options = LoadOptions.parse(args);
+        try (BenchmarkDatabase database = new BenchmarkDatabase()) {
+            List<Yard> docks = seed(database, options);
+            ConfigurableApplicationContext service = start(database, options);
+            try {
+                int port = ((WebServerApplicationContext) service)
+                        .getWebServer().getPort();
+                new YardLoadTest(options, port, docks).run(System.out);
+            } finally {
+                service.close();
+            }
+        }
+    }
+
+    /** Inserts the docks of the warehouses and a vehicle type for the
+     * updates.
+     *
+     * @param database the database to seed.
+     * @param options  the number of warehouses and docks.
+     * @return the inserted docks.
+     */
+    private static List<Yard> seed(BenchmarkDatabase database,
+                                   LoadOptions options) {
+        database.insertWarehouses(options.warehouses, Math.max(1,
+                options.docks / BenchmarkYards.COLORS.length));
+        return database.jdbi().withHandle(handle -> {
+            handle.execute("INSERT INTO vehicle_type (name) VALUES ('truck')");
+            return handle.createQuery("SELECT * FROM yard")
+                    .mapTo(Yard.class).list();
+        });
+    }
+
+    /** Starts the service on a random port connected to the database.
+     *
+     * @param database the database of the service.
+     * @param options  the arguments of the service.
+     * @return the running service.
+     */
+    private static ConfigurableApplicationContext start(
+            BenchmarkDatabase database, LoadOptions options) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.driverClassName=org.postgresql.Driver",
+                "--spring.datasource.url=" + database.jdbcUrl(),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.datasource.hikari.maximum-pool-size=10",
+                "--spring.flyway.locations=classpath:migrations",
+                // The errors must not be notified to the real channel.
+                "--log.slack.uri=http://localhost:9/load-test"));
+        args.addAll(options.serviceArgs);
+        return SpringApplication.run(YardManagementSystemApplication.class,
+                args.toArray(new String[0]));
+    }
+
+    /** Sends the traffic for the warm up and the measured time and prints
+     * the results of the measured time.
+     *
+     * @param out where the results are printed.
+     * @throws InterruptedException if the run is interrupted.
+     */
+    private void run(PrintStream out) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.rps;
+        long start = System.nanoTime();
+        long measureStart =
+                start + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        long end = measureStart
+                + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        out.printf("Sending %d requests per second to %d warehouses with %d"
+                        + " docks, %d s of warm up and %d s measured%n",
+                options.rps, options.warehouses, docks.size(),
+                options.warmupSeconds, options.durationSeconds);
+
+        for (long sent = 0; ; sent++) {
+            long intended = start + sent * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            Endpoint endpoint = next();
+            boolean measured = intended >= measureStart;
+            send(endpoint).whenComplete((status, error) -> {
+                if (measured) {
+                    latencies.get(endpoint).recordValue(Math.min(
+                            System.nanoTime() - intended, MAX_LATENCY_NANOS));
+                    if (error != null || status >= 400) {
+                        errors.get(endpoint).increment();
+                    }
+                }
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(options.maxInFlight);
+        report(out);
+    }
+
+    /** Selects the endpoint of the next request following the mix.
+     *
+     * @return the endpoint.
+     */
+    private Endpoint next() {
+        int value = ThreadLocalRandom.current()
+                .nextInt(weights[weights.length - 1]);
+        for (int i = 0; i < weights.length; i++) {
+            if (value < weights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+
+    /** Sends a request to the endpoint with random data.
+     *
+     * @param endpoint the endpoint.
+     * @return the status of the response.
+     */
+    private CompletableFuture<Integer> send(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Yard dock = docks.get(random.nextInt(docks.size()));
+        switch (endpoint) {
+            case POLL:
+                return poll(BenchmarkYards.warehouse(
+                        random.nextInt(options.warehouses)));
+            case READ:
+                return call(get("/" + dock.getWarehouse() + "/"
+                        + dock.getId()).build());
+            case OCCUPY:
+                return call(post("/occupy", dock(dock)));
+            case FREE:
+                return call(post("/free", dock(dock)));
+            case REGISTER:
+                ObjectNode yard = JsonUtils.instance.createObjectNode()
+                        .put("color", BenchmarkYards.COLORS[random.nextInt(
+                                BenchmarkYards.COLORS.length)]);
+                return call(post("/" + dock.getWarehouse() + "/", yard));
+            default:
+                return call(HttpRequest.newBuilder(
+                        URI.create(baseUri + "/" + dock.getId()))
+                        .header("Content-Type", "application/json")
+                        .PUT(body(dock(dock).put("id", dock.getId())
+                                .put("vehicleType", 1)))
+                        .build());
+        }
+    }
+
+    /** Polls the yards of a warehouse like a board, with the ETag of its
+     * previous poll.
+     *
+     * @param warehouse the warehouse of the board.
+     * @return the status of the response.
+     */
+    private CompletableFuture<Integer> poll(String warehouse) {
+        HttpRequest.Builder request = get("/" + warehouse + "/");
+        String tag = boardTags.get(warehouse);
+        if (tag != null) {
+            request.header("If-None-Match", tag);
+        }
+        return client.sendAsync(request.build(),
+                HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> {
+                    response.headers().firstValue("ETag").ifPresent(
+                            etag -> boardTags.put(warehouse, etag));
+                    return response.statusCode();
+                });
+    }
+
+    /** Creates the identification of a dock used by the occupancy changes.
+     *
+     * @param dock the dock.
+     * @return the warehouse, color and assignation number of the dock.
+     */
+    private static ObjectNode dock(Yard dock) {
+        return JsonUtils.instance.createObjectNode()
+                .put("warehouse", dock.getWarehouse())
+                .put("color", dock.getAssignedColor())
+                .put("assignationNumber", dock.getAssignationNumber());
+    }
+
+    /** Creates a GET request.
+     *
+     * @param path the path after the base path of the yards.
+     * @return the request.
+     */
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .header("Accept", "application/json")
+                .GET();
+    }
+
+    /** Creates a POST request with a JSON body.
+     *
+     * @param path the path after the base path of the yards.
+     * @param json the body.
+     * @return the request.
+     */
+    private HttpRequest post(String path, ObjectNode json) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .header("Content-Type", "application/json")
+                .POST(body(json))
+                .build();
+    }
+
+    /** Creates the publisher of a JSON body.
+     *
+     * @param json the body.
+     * @return the publisher.
+     */
+    private static HttpRequest.BodyPublisher body(ObjectNode json) {
+        return HttpRequest.BodyPublishers.ofString(json.toString());
+    }
+
+    /** Sends a request discarding the body of the response.
+     *
+     * @param request the request.
+     * @return the status of the response.
+     */
+    private CompletableFuture<Integer> call(HttpRequest request) {
+        return client.sendAsync(request,
+                HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+
+    /** Prints the requests, errors, throughput and latency percentiles in
+     * milliseconds of each endpoint and of all of them.
+     *
+     * @param out where the results are printed.
+     */
+    private void report(PrintStream out) {
+        String format = "%-10s %10s %8s %10s %10s %10s %10s %10s%n";
+        out.printf(format, "endpoint", "requests", "errors", "req/s",
+                "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+        long totalErrors = 0;
+        for (Endpoint endpoint : endpoints) {
+            Histogram latency = latencies.get(endpoint);
+            long failed = errors.get(endpoint).sum();
+            total.add(latency);
+            totalErrors += failed;
+            print(out, format, endpoint.name().toLowerCase(), latency, failed);
+        }
+        print(out, format, "total", total, totalErrors);
+    }
+
+    /** Prints a line of the results.
+     *
+     * @param out     where the results are printed.
+     * @param format  the format of the line.
+     * @param name    the name of the line.
+     * @param latency the latencies in nanoseconds.
+     * @param failed  the number of failed requests.
+     */
+    private void print(PrintStream out, String format, String name,
+                       Histogram latency, long failed) {
+        out.printf(format, name,
+                latency.getTotalCount(),
+                failed,
+                String.format("%.1f", latency.getTotalCount()
+                        / (double) options.durationSeconds),
+                millis(latency.getValueAtPercentile(50)),
+                millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)),
+                millis(latency.getMaxValue()));
+    }
+
+    /** Formats a latency in milliseconds.
+     *
+     * @param nanos the latency in nanoseconds.
+     * @return the formatted latency.
+     */
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / NANOS_PER_MILLI);
+    }
+}
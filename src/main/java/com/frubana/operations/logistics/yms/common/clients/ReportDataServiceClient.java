@@ -0,0 +1,250 @@
+package com.frubana.operations.logistics.yms.common.clients;
+
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils;
+import com.frubana.operations.logistics.yms.common.utils.WarehouseRelationUtils.WarehouseRelation;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Non blocking client of the report data service.
+ * <p> The url of the service is selected by the country of the warehouse.
+ * The identical calls made while one is in flight share its response, and
+ * the responses are cached for a short time, so many dashboards asking for
+ * the same day cost one call to the service.
+ */
+@Component
+public class ReportDataServiceClient implements SomeClient {
+
+    /** Name of the circuit breaker of the service. */
+    public static final String SERVICE_NAME = "reportDataServiceClient";
+
+    /** Prefix of the properties of the service. */
+    private static final String PREFIX = "frubana.report_data_service.";
+
+    /** Max number of cached calls before removing the expired ones. */
+    private static final int MAX_CACHED_CALLS = 256;
+
+    /** The client used to call the service, it's never null. */
+    private final WebClient webClient;
+
+    /** The circuit breaker of the calls, it's never null. */
+    private final CircuitBreaker circuitBreaker;
+
+    /** The environment to read the url of each country, it's never null. */
+    private final Environment env;
+
+    /** Max time to wait for a response. */
+    private final Duration timeout;
+
+    /** Time a response is reused. */
+    private final Duration ttl;
+
+    /** The calls in flight or cached by warehouse and date. */
+    private final Map<CallKey, CachedCall> calls = new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param builder  The builder of the web client, with the metrics of
+     *                 spring boot.
+     * @param registry The registry of the circuit breakers.
+     * @param env      The environment to read the properties of the service.
+     */
+    @Autowired
+    public ReportDataServiceClient(WebClient.Builder builder,
+                                   CircuitBreakerRegistry registry,
+                                   Environment env) {
+        this.webClient = builder.build();
+        this.circuitBreaker = registry.circuitBreaker(SERVICE_NAME);
+        this.env = env;
+        this.timeout = Duration.ofMillis(env.getProperty(
+                PREFIX + "timeout-ms", Long.class, 5000L));
+        this.ttl = Duration.ofMillis(env.getProperty(
+                PREFIX + "cache-ttl-ms", Long.class, 30000L));
+    }
+
+    /** {@inheritDoc}
+     * <p> Blocks until the shared call of the warehouse and date ends.
+     */
+    @Override
+    public List<Yard> requireSomeObjects(String warehouse, String date) {
+        return someObjects(warehouse, date).block();
+    }
+
+    /** Extracts some object from the service without blocking, sharing the
+     * call with the identical ones in flight or recently done.
+     *
+     * @param warehouse The warehouse from where the some object are going to
+     *                  be extracted, required and cannot be null.
+     * @param date      Day of the some object to extract, required in format
+     *                  yyyy-MM-dd and cannot be null.
+     * @return The list of some object for the given warehouse in the given
+     * date.
+     * @throws IllegalArgumentException if the warehouse is unknown or the
+     * date is not valid.
+     */
+    public Mono<List<Yard>> someObjects(String warehouse, String date) {
+        String uri = uri(warehouse, date);
+        CallKey key = new CallKey(warehouse, date);
+        CachedCall call = calls.compute(key, (k, cached) ->
+                cached != null && !cached.isExpired() ? cached
+                        : new CachedCall(fetch(uri), ttl));
+        if (calls.size() > MAX_CACHED_CALLS) {
+            calls.values().removeIf(CachedCall::isExpired);
+        }
+        return call.response;
+    }
+
+    /** Streams some object from the service, each one is emitted while the
+     * response is read so large responses are never buffered, the streams
+     * are not shared nor cached.
+     *
+     * @param warehouse The warehouse from where the some object are going to
+     *                  be extracted, required and cannot be null.
+     * @param date      Day of the some object to extract, required in format
+     *                  yyyy-MM-dd and cannot be null.
+     * @return The stream of some object for the given warehouse in the
+     * given date.
+     * @throws IllegalArgumentException if the warehouse is unknown or the
+     * date is not valid.
+     */
+    public Flux<Yard> streamSomeObjects(String warehouse, String date) {
+        return webClient.get()
+                .uri(uri(warehouse, date))
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(Yard.class)
+                .timeout(timeout)
+                .transform(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    /** Creates the shared call of a warehouse and date, the response is
+     * reused until the ttl expires and a failure is not reused, so the next
+     * subscriber tries again.
+     *
+     * @param uri The uri of the call.
+     * @return The call, done once when the first subscriber arrives.
+     */
+    private Mono<List<Yard>> fetch(String uri) {
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(Yard.class)
+                .collectList()
+                .timeout(timeout)
+                .transform(CircuitBreakerOperator.of(circuitBreaker))
+                .cache(response -> ttl, error -> Duration.ZERO,
+                        () -> Duration.ZERO);
+    }
+
+    /** Builds the uri of the service for a warehouse and date.
+     *
+     * @param warehouse The warehouse, its country selects the service url.
+     * @param date      The day in format yyyy-MM-dd.
+     * @return The uri of the service.
+     * @throws IllegalArgumentException if the warehouse is unknown, its
+     * country has no url configured or the date is not valid.
+     */
+    private String uri(String warehouse, String date) {
+        WarehouseRelation relation =
+                WarehouseRelationUtils.getRelation(warehouse);
+        if (relation == null) {
+            throw new IllegalArgumentException("The warehouse " + warehouse +
+                    " is not related to a country.");
+        }
+        try {
+            LocalDate.parse(Objects.toString(date, ""));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("The date must have the " +
+                    "format yyyy-MM-dd.", e);
+        }
+        String url = env.getProperty(PREFIX + "url_" + relation.getCountry());
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("There is no report data " +
+                    "service url for the country " + relation.getCountry());
+        }
+        return url + env.getProperty(PREFIX + "orders", "")
+                + "?region=" + relation.getRegion() + "&date=" + date;
+    }
+
+    /** The warehouse and date of a call.
+     */
+    private static final class CallKey {
+        /** The warehouse of the call. */
+        private final String warehouse;
+
+        /** The date of the call. */
+        private final String date;
+
+        /** Constructor.
+         *
+         * @param warehouse The warehouse of the call.
+         * @param date      The date of the call.
+         */
+        private CallKey(String warehouse, String date) {
+            this.warehouse = warehouse;
+            this.date = date;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof CallKey)) {
+                return false;
+            }
+            CallKey key = (CallKey) other;
+            return warehouse.equals(key.warehouse) && date.equals(key.date);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(warehouse, date);
+        }
+    }
+
+    /** A shared call and the time until its response is reused.
+     */
+    private static final class CachedCall {
+        /** The shared response of the call. */
+        private final Mono<List<Yard>> response;
+
+        /** The {@link System#nanoTime()} when the response expires. */
+        private final long expiresAt;
+
+        /** Constructor.
+         *
+         * @param response The shared response of the call.
+         * @param ttl      Time the response is reused.
+         */
+        private CachedCall(Mono<List<Yard>> response, Duration ttl) {
+            this.response = response;
+            this.expiresAt = System.nanoTime() + ttl.toNanos();
+        }
+
+        /** Checks if the response must not be reused anymore.
+         *
+         * @return True if the response expired.
+         */
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/** Configures the asynchronous requests, like the event streams.
+ * <p> The MVC configuration is enabled by hand, so the spring.mvc properties
+ * and the application task executor are not applied and must be set here.
+ */
+@Configuration
+public class AsyncConfiguration implements WebMvcConfigurer {
+
+    /** Milliseconds before an asynchronous request is closed, -1 to never
+     * close it. */
+    private final long timeoutMs;
+
+    /** The executor of the application, its tasks carry the correlation id
+     * of the request. */
+    private final ObjectProvider<AsyncTaskExecutor> executor;
+
+    /** Constructor.
+     *
+     * @param timeoutMs Milliseconds before an asynchronous request is
+     *                  closed, the boards reconnect when it happens.
+     * @param executor  The executor of the application, used to write the
+     *                  streamed responses.
+     */
+    public AsyncConfiguration(@Value("${yms.sse.timeout-ms:1800000}")
+                                      long timeoutMs,
+                              @Qualifier(TaskExecutionAutoConfiguration
+                                      .APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                      ObjectProvider<AsyncTaskExecutor>
+                                      executor) {
+        this.timeoutMs = timeoutMs;
+        this.executor = executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeoutMs);
+        executor.ifAvailable(configurer::setTaskExecutor);
+    }
+}
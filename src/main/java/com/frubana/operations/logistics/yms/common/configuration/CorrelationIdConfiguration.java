@@ -0,0 +1,44 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.common.utils.CorrelationId;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+/** Carries the correlation id of the requests to the tasks run in other
+ * threads, by the spring executors and the reactor schedulers.
+ */
+@Configuration
+public class CorrelationIdConfiguration {
+
+    /** The key of the hook in the reactor schedulers. */
+    private static final String HOOK_KEY = CorrelationId.MDC_KEY;
+
+    /** Configures the decorator that spring applies to the tasks of its
+     * executors.
+     *
+     * @return The decorator.
+     */
+    @Bean
+    public TaskDecorator correlationIdTaskDecorator() {
+        return CorrelationId::wrap;
+    }
+
+    /** Registers the hook that wraps the tasks of the reactor schedulers.
+     */
+    @PostConstruct
+    public void registerSchedulersHook() {
+        Schedulers.onScheduleHook(HOOK_KEY, CorrelationId::wrap);
+    }
+
+    /** Removes the hook of the reactor schedulers.
+     */
+    @PreDestroy
+    public void resetSchedulersHook() {
+        Schedulers.resetOnScheduleHook(HOOK_KEY);
+    }
+}
@@ -1,53 +1,72 @@
 package com.frubana.operations.logistics.yms.common.configuration;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /** Formats the logging to add specific fields to the log.
+ * <p> The params are added to the message as compact JSON, they are only
+ * serialized if the level is enabled and the serialization is done when
+ * the message is formatted, by the async appender off the request thread.
+ * The collections in the params are logged as their size and a sample.
  */
 @Component
 public class FormattedLogger {
+
+    /** Max number of elements logged of each collection in the params. */
+    static final int SAMPLE_SIZE = 5;
+
+    /** The key of the origin method in the MDC. */
+    private static final String ORIGIN = "origin";
+
+    /** The key of the service in the MDC. */
+    private static final String SERVICE = "service";
+
+    /** Text logged when there are no params. */
+    private static final String NO_DATA = "No data given";
+
+    /** The compact writer of the params, it's thread safe and reuses the
+     * serializers between calls. */
+    private static final ObjectWriter WRITER = JsonUtils.instance.writer();
+
     /** Prepares the logger additional fields for the pattern.
      *
      * @param origin method that originated the log. Required.
      * @param data   map with all the data logged like params, results,
      *               objects, etc.
-     * @throws JsonProcessingException If the given map cannot be converted
-     *                                 into a JSON string.
+     * @return the params to add to the message, serialized when the message
+     * is formatted.
      */
-    private void prepareBaseLogger(String origin, Map<String, Object> data)
-            throws JsonProcessingException {
-
-        String threadName = Thread.currentThread().getName();
-        String logId;
-        if (!threadName.startsWith("CHANGE-ME-")) {
-            logId = "CHANGE-ME-" + UUID.randomUUID().toString();
-            Thread.currentThread().setName(logId);
-        }
+    private Object prepareBaseLogger(String origin, Map<String, Object> data) {
+        MDC.put(ORIGIN, origin);
+        MDC.put(SERVICE, "labels");
 
-        MDC.put("origin", origin);
-        MDC.put("service", "labels");
-
-        ObjectMapper mapper = JsonUtils.instance;
-        if (data != null && !data.isEmpty()) {
-            String paramsJson = mapper.writerWithDefaultPrettyPrinter()
-                    .writeValueAsString(data);
-            MDC.put("data", paramsJson);
-        } else {
-            MDC.put("data", "No data given");
+        if (data == null || data.isEmpty()) {
+            return NO_DATA;
         }
+        return new LazyJson(data);
+    }
+
+    /** Removes the fields added to the MDC, the other fields of the MDC
+     * like the correlation id are kept.
+     */
+    private void clear() {
+        MDC.remove(ORIGIN);
+        MDC.remove(SERVICE);
     }
 
     /** Logs the info level of the actual configured logger setting the MDC
-     * to be used by the logger pattern with the service, data, logId and
-     * origin.
+     * to be used by the logger pattern with the service and origin.
      *
      * @param logger  logger of the class that wants to log.
      * @param origin  the origin method that wants to create the log.
@@ -56,21 +75,18 @@ public class FormattedLogger {
      */
     public void logInfo(Logger logger, String origin, String message,
                           Map<String, Object> params) {
+        if (!logger.isInfoEnabled()) {
+            return;
+        }
         try {
-            prepareBaseLogger(origin, params);
-            logger.info(message);
-        }catch (JsonProcessingException e) {
-            logger.info(message);
-            logger.warn("Impossible to log the params and results as are " +
-                    "not valid JSON formats.");
+            logger.info("{} {}", message, prepareBaseLogger(origin, params));
         } finally {
-            MDC.clear();
+            clear();
         }
     }
 
     /** Logs the error level of the actual configured logger setting the MDC
-     * to be used by the logger pattern with the service, data, logId and
-     * origin.
+     * to be used by the logger pattern with the service and origin.
      *
      * @param logger  logger of the class that wants to log.
      * @param origin  the origin method that wants to create the log. Required.
@@ -81,25 +97,23 @@ public class FormattedLogger {
      */
     public void logError(Logger logger, String origin, String message,
                            Map<String, Object> params, Throwable ex) {
+        if (!logger.isErrorEnabled()) {
+            return;
+        }
         try {
-            prepareBaseLogger(origin, params);
+            Object data = prepareBaseLogger(origin, params);
             if (ex != null) {
-                logger.error(message, ex);
+                logger.error("{} {}", message, data, ex);
             } else {
-                logger.error(message);
+                logger.error("{} {}", message, data);
             }
-        }catch (JsonProcessingException e) {
-            logger.error(message, ex);
-            logger.warn("Impossible to log the params and results as are " +
-                    "not valid JSON formats.");
         } finally {
-            MDC.clear();
+            clear();
         }
     }
 
     /** Logs the debug level of the actual configured logger setting the MDC
-     * to be used by the logger pattern with the service, data, logId and
-     * origin.
+     * to be used by the logger pattern with the service and origin.
      *
      * @param logger  logger of the class that wants to log.
      * @param origin  the origin method that wants to create the log. Required.
@@ -110,19 +124,79 @@ public class FormattedLogger {
      */
     public void logDebug(Logger logger, String origin, String message,
                            Map<String, Object> params, Throwable ex) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
         try {
-            prepareBaseLogger(origin, params);
+            Object data = prepareBaseLogger(origin, params);
             if (ex != null) {
-                logger.debug(message, ex);
+                logger.debug("{} {}", message, data, ex);
             } else {
-                logger.debug(message);
+                logger.debug("{} {}", message, data);
             }
-        }catch (JsonProcessingException e) {
-            logger.error(message, ex);
-            logger.warn("Impossible to log the params and results as are " +
-                    "not valid JSON formats.");
         } finally {
-            MDC.clear();
+            clear();
+        }
+    }
+
+    /** The params of a log, serialized to JSON when the message is
+     * formatted.
+     * <p> The params are copied when the log is created, because the caller
+     * keeps changing the map after logging it. The collections are
+     * replaced by their size and a sample of their first elements.
+     */
+    static final class LazyJson {
+
+        /** The copy of the params. */
+        private final Map<String, Object> data;
+
+        /** Constructor.
+         *
+         * @param params The params of the log, cannot be null.
+         */
+        LazyJson(Map<String, Object> params) {
+            this.data = new LinkedHashMap<>(params.size() * 2);
+            params.forEach((key, value) -> data.put(key, truncate(value)));
+        }
+
+        /** Replaces a collection by its size and a sample of its first
+         * elements, the other values are kept.
+         *
+         * @param value The value of a param.
+         * @return The value to log.
+         */
+        private static Object truncate(Object value) {
+            if (!(value instanceof Collection)) {
+                return value;
+            }
+            Collection<?> collection = (Collection<?>) value;
+            int size = collection.size();
+            List<Object> sample = new ArrayList<>(Math.min(size, SAMPLE_SIZE));
+            Iterator<?> elements = collection.iterator();
+            while (sample.size() < SAMPLE_SIZE && elements.hasNext()) {
+                sample.add(elements.next());
+            }
+            if (size <= SAMPLE_SIZE) {
+                return sample;
+            }
+            Map<String, Object> truncated = new LinkedHashMap<>(4);
+            truncated.put("count", size);
+            truncated.put("sample", sample);
+            return truncated;
+        }
+
+        /** Serializes the params.
+         *
+         * @return The params as compact JSON.
+         */
+        @Override
+        public String toString() {
+            try {
+                return WRITER.writeValueAsString(data);
+            } catch (JsonProcessingException e) {
+                return "Impossible to log the params and results as are " +
+                        "not valid JSON formats.";
+            }
         }
     }
 }
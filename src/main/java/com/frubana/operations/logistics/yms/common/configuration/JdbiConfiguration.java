@@ -1,13 +1,18 @@
 package com.frubana.operations.logistics.yms.common.configuration;
 
+import com.zaxxer.hikari.HikariDataSource;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.mapper.RowMapper;
 import org.jdbi.v3.core.spi.JdbiPlugin;
 import org.jdbi.v3.sqlobject.SqlObjectPlugin;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
@@ -22,6 +27,12 @@ import static java.util.Objects.requireNonNull;
 @Configuration
 public class JdbiConfiguration {
 
+    /** Name of the {@link Jdbi} bean used by the read only queries. */
+    public static final String READ_JDBI = "readJdbi";
+
+    /** Name of the read replica {@link DataSource} bean. */
+    public static final String REPLICA_DATA_SOURCE = "replicaDataSource";
+
     /** Method representing a JDBI Bean designed to prepare the JDBI to
      * search for the {@link JdbiPlugin} plugins and {@link RowMapper}
      * Mappers defined in the project to extract the data from the configured
@@ -36,17 +47,62 @@ public class JdbiConfiguration {
      * @return The {@link Jdbi} instance used to extract the needed data.
      */
     @Bean
+    @Primary
     public Jdbi jdbi(final DataSource ds,
                      final List<JdbiPlugin> jdbiPlugins,
                      final List<RowMapper<?>> rowMappers) {
 
         requireNonNull(ds);
-        requireNonNull(jdbiPlugins);
-        requireNonNull(rowMappers);
 
         TransactionAwareDataSourceProxy proxy =
                 new TransactionAwareDataSourceProxy(ds);
-        Jdbi jdbi = Jdbi.create(proxy);
+        return createJdbi(proxy, jdbiPlugins, rowMappers);
+    }
+
+    /** JDBI Bean used by the read only queries, uses the read replica
+     * {@link DataSource} when it's configured, otherwise is the same
+     * {@link Jdbi} of the primary database.
+     *
+     * @param replica     The replica {@link DataSource}, only available if
+     *                    spring.datasource.replica.url is configured.
+     * @param jdbi        The {@link Jdbi} of the primary database, cannot be
+     *                    null.
+     * @param jdbiPlugins Loaded {@link JdbiPlugin} declared in the POM or
+     *                    some Bean cannot be null.
+     * @param rowMappers  Loaded {@link RowMapper} defined in some component
+     *                    of the project cannot be null.
+     * @return The {@link Jdbi} instance used to read data.
+     */
+    @Bean(name = READ_JDBI)
+    public Jdbi readJdbi(
+            @Qualifier(REPLICA_DATA_SOURCE)
+            final ObjectProvider<DataSource> replica,
+            final Jdbi jdbi,
+            final List<JdbiPlugin> jdbiPlugins,
+            final List<RowMapper<?>> rowMappers) {
+        DataSource ds = replica.getIfAvailable();
+        if (ds == null) {
+            return jdbi;
+        }
+        // The replica doesn't take part in the spring transactions, those
+        // are always on the primary database.
+        return createJdbi(ds, jdbiPlugins, rowMappers);
+    }
+
+    /** Creates a {@link Jdbi} with the plugins and mappers of the project.
+     *
+     * @param ds          The {@link DataSource} to use, cannot be null.
+     * @param jdbiPlugins Loaded {@link JdbiPlugin} cannot be null.
+     * @param rowMappers  Loaded {@link RowMapper} cannot be null.
+     * @return The {@link Jdbi} instance.
+     */
+    private static Jdbi createJdbi(final DataSource ds,
+                                   final List<JdbiPlugin> jdbiPlugins,
+                                   final List<RowMapper<?>> rowMappers) {
+        requireNonNull(jdbiPlugins);
+        requireNonNull(rowMappers);
+
+        Jdbi jdbi = Jdbi.create(ds);
 
         // Register all available plugins
         jdbiPlugins.forEach(jdbi::installPlugin);
@@ -65,7 +121,9 @@ public class JdbiConfiguration {
     public JdbiPlugin sqlObjectPlugin() { return new SqlObjectPlugin(); }
 
     /** {@link DataSource} Bean definition to set the database used in the
-     * project.
+     * project, using a Hikari connection pool configured with the
+     * spring.datasource.hikari properties. The pool metrics are published
+     * by the actuator as hikaricp.connections.*.
      *
      * @param env Environment definition to extract the properties, this
      *            field is autowired using the properties
@@ -73,14 +131,82 @@ public class JdbiConfiguration {
      * @return the {@link DataSource} instance for the project.
      */
     @Bean
+    @Primary
     @Autowired
     public DataSource getDataSource(final Environment env) {
         requireNonNull(env);
-        return DataSourceBuilder.create()
-                .driverClassName(env.getProperty("spring.datasource.driverClassName"))
-                .url(env.getProperty("spring.datasource.url"))
-                .username(env.getProperty("spring.datasource.username"))
-                .password(env.getProperty("spring.datasource.password")).build();
+        return createDataSource(env, "spring.datasource", "yms-primary");
+    }
+
+    /** {@link DataSource} Bean definition of the read replica, only created
+     * when spring.datasource.replica.url is configured, the driver, user
+     * and password are the ones of the primary if not given.
+     *
+     * @param env Environment definition to extract the properties.
+     * @return the replica {@link DataSource} instance for the project.
+     */
+    @Bean(name = REPLICA_DATA_SOURCE)
+    @ConditionalOnProperty("spring.datasource.replica.url")
+    public DataSource replicaDataSource(final Environment env) {
+        requireNonNull(env);
+        HikariDataSource dataSource = createDataSource(
+                env, "spring.datasource.replica", "yms-replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /** Creates a pooled {@link DataSource} from the properties of the given
+     * prefix.
+     *
+     * @param env      Environment definition to extract the properties,
+     *                 cannot be null.
+     * @param prefix   Prefix of the datasource properties, cannot be null.
+     * @param poolName Default name of the pool, used as tag of the metrics.
+     * @return the {@link HikariDataSource} instance.
+     */
+    private static HikariDataSource createDataSource(
+            final Environment env, final String prefix,
+            final String poolName) {
+        String pool = prefix + ".hikari.";
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(env.getProperty(prefix + ".driverClassName",
+                        env.getProperty("spring.datasource.driverClassName")))
+                .url(env.getProperty(prefix + ".url"))
+                .username(env.getProperty(prefix + ".username",
+                        env.getProperty("spring.datasource.username")))
+                .password(env.getProperty(prefix + ".password",
+                        env.getProperty("spring.datasource.password")))
+                .build();
+
+        dataSource.setPoolName(
+                env.getProperty(pool + "pool-name", poolName));
+        dataSource.setMaximumPoolSize(env.getProperty(
+                pool + "maximum-pool-size", Integer.class, 10));
+        dataSource.setMinimumIdle(env.getProperty(
+                pool + "minimum-idle", Integer.class, 2));
+        dataSource.setConnectionTimeout(env.getProperty(
+                pool + "connection-timeout", Long.class, 5000L));
+        dataSource.setIdleTimeout(env.getProperty(
+                pool + "idle-timeout", Long.class, 600000L));
+        dataSource.setMaxLifetime(env.getProperty(
+                pool + "max-lifetime", Long.class, 1800000L));
+        dataSource.setLeakDetectionThreshold(env.getProperty(
+                pool + "leak-detection-threshold", Long.class, 0L));
+
+        // Server side prepared statements cache of the postgres driver.
+        if (dataSource.getJdbcUrl() != null
+                && dataSource.getJdbcUrl().startsWith("jdbc:postgresql")) {
+            dataSource.addDataSourceProperty("prepareThreshold", env
+                    .getProperty(pool + "prepare-threshold", "5"));
+            dataSource.addDataSourceProperty("preparedStatementCacheQueries",
+                    env.getProperty(pool + "prepared-statement-cache-queries",
+                            "256"));
+            dataSource.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                    env.getProperty(pool + "prepared-statement-cache-size-mib",
+                            "5"));
+        }
+        return dataSource;
     }
 
 }
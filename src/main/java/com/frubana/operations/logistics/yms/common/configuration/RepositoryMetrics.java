@@ -0,0 +1,238 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/** Times each method of the repositories, published as yms.repository with
+ * the repository, operation, warehouse and outcome tags, and the rows
+ * returned by each method as yms.repository.rows.
+ * <p> The warehouse is taken from the warehouse param or the yard param of
+ * the method, only the first warehouses seen get their own tag, the rest
+ * are tagged as other so a wrong warehouse cannot create unlimited series.
+ * <p> The running operation is kept for the thread so the statements of
+ * the method are tagged with it by {@link SqlMetricsPlugin}.
+ * <p> The meters are registered once for each set of tags and then reused
+ * by the next calls.
+ */
+@Aspect
+@Component
+public class RepositoryMetrics {
+
+    /** The name of the timer of the repository methods. */
+    static final String TIMER = "yms.repository";
+
+    /** The name of the summary of the rows returned. */
+    static final String ROWS = "yms.repository.rows";
+
+    /** The tag value of a method without warehouse. */
+    static final String NONE = "none";
+
+    /** The tag value of the warehouses over the limit. */
+    static final String OTHER = "other";
+
+    /** The operation running in each thread. */
+    private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+
+    /** The registry of the meters, it's never null. */
+    private final MeterRegistry registry;
+
+    /** Max number of warehouses with their own tag. */
+    private final int maxWarehouses;
+
+    /** The warehouses with their own tag. */
+    private final Set<String> warehouses = ConcurrentHashMap.newKeySet();
+
+    /** The timers by repository, operation, warehouse and outcome. */
+    private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+
+    /** The summaries of the returned rows by repository and operation. */
+    private final Map<List<String>, DistributionSummary> summaries =
+            new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param registry      The registry of the meters, cannot be null.
+     * @param maxWarehouses Max number of warehouses with their own tag.
+     */
+    @Autowired
+    public RepositoryMetrics(
+            MeterRegistry registry,
+            @Value("${yms.metrics.max-warehouses:100}") int maxWarehouses) {
+        this.registry = registry;
+        this.maxWarehouses = maxWarehouses;
+    }
+
+    /** Obtains the repository operation running in the current thread.
+     *
+     * @return the operation, like yard.getByWarehouse, or null if the thread
+     * is not running a repository method.
+     */
+    static String currentOperation() {
+        return OPERATION.get();
+    }
+
+    /** Times a public method of the repositories.
+     *
+     * @param point the method call.
+     * @return the result of the method.
+     * @throws Throwable the error of the method.
+     */
+    @Around("execution(public * com.frubana.operations.logistics.yms.yard"
+            + ".domain.repository.YardRepository.*(..))"
+            + " || execution(public * com.frubana.operations.logistics.yms"
+            + ".yard.domain.repository.VehicleTypeRepository.*(..))"
+            + " || execution(public * com.frubana.operations.logistics.yms"
+            + ".yard.domain.repository.OccupancyEventRepository.*(..))")
+    public Object time(ProceedingJoinPoint point) throws Throwable {
+        String repository = repository(point);
+        String operation = repository + "." + point.getSignature().getName();
+        String warehouse = warehouse(point);
+        String previous = OPERATION.get();
+        OPERATION.set(operation);
+        String outcome = "error";
+        long start = System.nanoTime();
+        try {
+            Object result = point.proceed();
+            outcome = "success";
+            long rows = rows(result);
+            if (rows >= 0) {
+                summaries.computeIfAbsent(List.of(repository, operation),
+                        key -> DistributionSummary.builder(ROWS)
+                                .tags("repository", repository,
+                                        "operation", operation)
+                                .register(registry))
+                        .record(rows);
+            }
+            return result;
+        } finally {
+            timer(repository, operation, warehouse, outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (previous == null) {
+                OPERATION.remove();
+            } else {
+                OPERATION.set(previous);
+            }
+        }
+    }
+
+    /** Obtains the timer of the repository methods.
+     *
+     * @param repository the repository.
+     * @param operation  the repository method.
+     * @param warehouse  the capped warehouse.
+     * @param outcome    success or error.
+     * @return the timer.
+     */
+    private Timer timer(String repository, String operation,
+                        String warehouse, String outcome) {
+        return timers.computeIfAbsent(
+                List.of(repository, operation, warehouse, outcome), key ->
+                        Timer.builder(TIMER)
+                                .tags("repository", repository,
+                                        "operation", operation,
+                                        "warehouse", warehouse,
+                                        "outcome", outcome)
+                                .register(registry));
+    }
+
+    /** Obtains the tag of the repository of a call.
+     *
+     * @param point the method call.
+     * @return the name of the repository class without the suffix, like
+     * yard or vehicleType.
+     */
+    private static String repository(ProceedingJoinPoint point) {
+        Class<?> type = point.getSignature().getDeclaringType();
+        // The generated subclasses, like the mocks, have a $ in the name.
+        while (type.getSimpleName().contains("$")
+                && type.getSuperclass() != null) {
+            type = type.getSuperclass();
+        }
+        String name = type.getSimpleName().replace("Repository", "");
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /** Obtains the tag of the warehouse of a call.
+     *
+     * @param point the method call.
+     * @return the warehouse param, or the warehouse of the yard param, or
+     * {@link #NONE} if the method has none.
+     */
+    private String warehouse(ProceedingJoinPoint point) {
+        String[] names = ((MethodSignature) point.getSignature())
+                .getParameterNames();
+        Object[] args = point.getArgs();
+        for (int i = 0; i < args.length; i++) {
+            if (names != null && "warehouse".equals(names[i])
+                    && args[i] instanceof String) {
+                return capped((String) args[i]);
+            }
+        }
+        for (Object arg : args) {
+            if (arg instanceof Yard) {
+                return capped(((Yard) arg).getWarehouse());
+            }
+        }
+        return NONE;
+    }
+
+    /** Limits the number of warehouse tags.
+     *
+     * @param warehouse the warehouse of the call.
+     * @return the warehouse, or {@link #OTHER} if there are already too
+     * many warehouse tags.
+     */
+    private String capped(String warehouse) {
+        if (warehouse == null || warehouse.isBlank()) {
+            return NONE;
+        }
+        if (warehouses.contains(warehouse)) {
+            return warehouse;
+        }
+        // The limit can be exceeded by a few concurrent new warehouses.
+        if (warehouses.size() < maxWarehouses) {
+            warehouses.add(warehouse);
+            return warehouse;
+        }
+        return OTHER;
+    }
+
+    /** Obtains the rows returned by a method.
+     *
+     * @param result the result of the method.
+     * @return the size of a collection or a map, 0 or 1 for an optional or a single
+     * row, or -1 if the result is not rows, like a boolean.
+     */
+    private static long rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Yard) {
+            return 1;
+        }
+        return -1;
+    }
+}
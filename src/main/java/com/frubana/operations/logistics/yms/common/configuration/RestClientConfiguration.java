@@ -1,18 +1,122 @@
 package com.frubana.operations.logistics.yms.common.configuration;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.TimeUnit;
+
 /** Configures the REST client for the WMS service.
+ * <p> The client keeps a pool of persistent connections with a limit per
+ * route and timeouts to connect, to wait for a pooled connection and to
+ * read, so an outbound call never blocks a thread forever.
  */
 @Configuration
 public class RestClientConfiguration {
 
-    /** Configures the template to use in the app.
+    /** Prefix of the properties of the client. */
+    private static final String PREFIX = "rest.client.";
+
+    /** Name of the pool in the metrics. */
+    private static final String POOL_NAME = "rest";
+
+    /** Configures the pool of connections of the client.
+     *
+     * @param env The environment to read the properties of the pool.
+     * @return The configured pool.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager restConnectionManager(
+            Environment env) {
+        PoolingHttpClientConnectionManager manager =
+                new PoolingHttpClientConnectionManager(
+                        env.getProperty(PREFIX + "time-to-live-ms",
+                                Long.class, 300000L),
+                        TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(
+                env.getProperty(PREFIX + "max-total", Integer.class, 50));
+        manager.setDefaultMaxPerRoute(
+                env.getProperty(PREFIX + "max-per-route", Integer.class, 20));
+        manager.setValidateAfterInactivity(
+                env.getProperty(PREFIX + "validate-after-inactivity-ms",
+                        Integer.class, 2000));
+        return manager;
+    }
+
+    /** Configures the HTTP client that uses the pool.
+     *
+     * <p> The idle connections are kept for the keep alive time, or less
+     * if the server asks for it.
+     *
+     * @param manager The pool of connections.
+     * @param env     The environment to read the timeouts.
+     * @return The configured client.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient restHttpClient(
+            PoolingHttpClientConnectionManager manager, Environment env) {
+        long keepAliveMs = env.getProperty(PREFIX + "keep-alive-ms",
+                Long.class, 30000L);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(env.getProperty(
+                        PREFIX + "connect-timeout-ms", Integer.class, 2000))
+                .setConnectionRequestTimeout(env.getProperty(
+                        PREFIX + "connection-request-timeout-ms",
+                        Integer.class, 1000))
+                .setSocketTimeout(env.getProperty(
+                        PREFIX + "read-timeout-ms", Integer.class, 5000))
+                .build();
+        ConnectionKeepAliveStrategy keepAlive = (response, context) -> {
+            long server = DefaultConnectionKeepAliveStrategy.INSTANCE
+                    .getKeepAliveDuration(response, context);
+            return server > 0 ? Math.min(server, keepAliveMs) : keepAliveMs;
+        };
+        return HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAlive)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /** Publishes the usage of the pool of connections, like the leased,
+     * available and pending connections.
+     *
+     * @param manager The pool of connections.
+     * @return The binder of the pool metrics.
+     */
+    @Bean
+    public MeterBinder restConnectionManagerMetrics(
+            PoolingHttpClientConnectionManager manager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(
+                manager, POOL_NAME);
+    }
+
+    /** Configures the template to use in the app, the builder adds the
+     * latency metrics of the requests.
      *
+     * @param builder The builder of spring boot.
+     * @param client  The pooled HTTP client.
      * @return The configured template.
      */
     @Bean
-    public RestTemplate restTemplate() { return new RestTemplate(); }
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     CloseableHttpClient client) {
+        return builder
+                .requestFactory(() ->
+                        new HttpComponentsClientHttpRequestFactory(client))
+                .build();
+    }
 }
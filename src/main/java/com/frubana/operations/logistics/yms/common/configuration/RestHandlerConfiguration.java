@@ -2,6 +2,9 @@ package com.frubana.operations.logistics.yms.common.configuration;
 
 import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
 import com.frubana.operations.logistics.yms.common.utils.SlackUtils;
+import com.frubana.operations.logistics.yms.yard.domain.YardConflictException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -161,6 +164,47 @@ public class RestHandlerConfiguration extends ResponseEntityExceptionHandler {
                         ex.getMessage()));
     }
 
+    /** Handler for a request rejected because its bulkhead is full.
+     * <p> The rejections come in bursts during a spike of requests, so they
+     * are not notified to Slack, the bulkhead metrics show them.
+     *
+     * @param ex The exception that caused the error.
+     * @return The HTTP response with the status and error message.
+     */
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<Object> bulkheadFullHandler(
+            BulkheadFullException ex) {
+        //Logging the given info
+        logFormatter.logError(logger, "bulkheadFullHandler",
+                "Request rejected by a full bulkhead", null, ex);
+
+        return status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(JsonUtils.jsonResponse(HttpStatus.SERVICE_UNAVAILABLE,
+                        ex.getMessage()));
+    }
+
+    /** Handler for a write based on an old version of a yard.
+     * <p> The conflicts are expected with concurrent editions, so they are
+     * not notified to Slack, the response carries the current yard to apply
+     * the change again.
+     *
+     * @param ex The exception that caused the error.
+     * @return The HTTP response with the status, error message and the
+     * current yard.
+     */
+    @ExceptionHandler(YardConflictException.class)
+    public ResponseEntity<Object> conflictHandler(YardConflictException ex) {
+        //Logging the given info
+        logFormatter.logInfo(logger, "conflictHandler", ex.getMessage(),
+                null);
+
+        ObjectNode body = JsonUtils.jsonResponse(HttpStatus.CONFLICT,
+                ex.getMessage());
+        body.set("yard", JsonUtils.instance.valueToTree(ex.getCurrent()));
+        return status(HttpStatus.CONFLICT).body(body);
+    }
+
     /** Handler for a unexpected exception.
      *
      * @param ex The exception that caused the error.
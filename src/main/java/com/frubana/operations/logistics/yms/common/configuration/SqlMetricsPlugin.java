@@ -0,0 +1,169 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.spi.JdbiPlugin;
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/** Times the execution of each SQL statement of the JDBI instances where
+ * it's installed, published as yms.sql with the operation, statement and
+ * outcome tags, and the rows changed by each insert, update or delete as
+ * yms.sql.rows.
+ * <p> The operation is the repository method that runs the statement, see
+ * {@link RepositoryMetrics}, and the statement is the SQL command like
+ * select or update, so the tags have a few known values. The time is the
+ * execution of the statement in the database, without reading and mapping
+ * the rows of a query.
+ * <p> The meters are registered once for each set of tags and then reused
+ * by the next statements.
+ */
+@Component
+public class SqlMetricsPlugin implements JdbiPlugin, SqlLogger {
+
+    /** The name of the timer of the statements. */
+    static final String TIMER = "yms.sql";
+
+    /** The name of the summary of the changed rows. */
+    static final String ROWS = "yms.sql.rows";
+
+    /** The commands with their own statement tag. */
+    private static final Set<String> COMMANDS =
+            Set.of("select", "insert", "update", "delete", "with");
+
+    /** The registry of the meters, it's never null. */
+    private final MeterRegistry registry;
+
+    /** The timers by operation, statement and outcome. */
+    private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+
+    /** The summaries of the changed rows by operation and statement. */
+    private final Map<List<String>, DistributionSummary> rows =
+            new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param registry The registry of the meters, cannot be null.
+     */
+    @Autowired
+    public SqlMetricsPlugin(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void customizeJdbi(Jdbi jdbi) {
+        jdbi.setSqlLogger(this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void logAfterExecution(StatementContext context) {
+        String operation = operation();
+        String statement = statement(context.getRawSql());
+        timer(operation, statement, "success").record(
+                context.getElapsedTime(ChronoUnit.NANOS),
+                TimeUnit.NANOSECONDS);
+        if ("select".equals(statement)) {
+            return;
+        }
+        long changed = updateCount(context.getStatement());
+        if (changed >= 0) {
+            rows.computeIfAbsent(List.of(operation, statement), key ->
+                    DistributionSummary.builder(ROWS)
+                            .tags("operation", operation,
+                                    "statement", statement)
+                            .register(registry))
+                    .record(changed);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void logException(StatementContext context, SQLException ex) {
+        Instant start = context.getExecutionMoment();
+        Instant end = context.getExceptionMoment();
+        if (start == null || end == null) {
+            return;
+        }
+        timer(operation(), statement(context.getRawSql()), "error")
+                .record(Duration.between(start, end));
+    }
+
+    /** Obtains the timer of the statements.
+     *
+     * @param operation the repository operation.
+     * @param statement the SQL command.
+     * @param outcome   success or error.
+     * @return the timer.
+     */
+    private Timer timer(String operation, String statement, String outcome) {
+        return timers.computeIfAbsent(
+                List.of(operation, statement, outcome), key ->
+                        Timer.builder(TIMER)
+                                .tags("operation", operation,
+                                        "statement", statement,
+                                        "outcome", outcome)
+                                .register(registry));
+    }
+
+    /** Obtains the repository operation running the statement.
+     *
+     * @return the operation, or none if the statement was not run by a
+     * repository method.
+     */
+    private static String operation() {
+        return Objects.requireNonNullElse(
+                RepositoryMetrics.currentOperation(), RepositoryMetrics.NONE);
+    }
+
+    /** Obtains the SQL command of a statement.
+     *
+     * @param sql the SQL of the statement.
+     * @return the first word of the SQL in lower case, or other if it's not
+     * a known command.
+     */
+    static String statement(String sql) {
+        if (sql == null) {
+            return RepositoryMetrics.OTHER;
+        }
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length()
+                && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        String command = trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+        return COMMANDS.contains(command) ? command : RepositoryMetrics.OTHER;
+    }
+
+    /** Obtains the rows changed by a statement.
+     *
+     * @param statement the executed statement.
+     * @return the changed rows, or -1 if they are not known.
+     */
+    private static long updateCount(PreparedStatement statement) {
+        try {
+            return statement == null ? -1 : statement.getUpdateCount();
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.frubana.operations.logistics.yms.common.utils;
+
+import org.slf4j.MDC;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Utility class to handle the correlation id of the requests.
+ * <p> The id is kept in the MDC of the thread that processes the request,
+ * the tasks sent to other threads must be wrapped to carry it.
+ */
+public class CorrelationId {
+
+    /** The header that carries the id in the requests and responses. */
+    public static final String HEADER = "X-Correlation-Id";
+
+    /** The key of the id in the MDC. */
+    public static final String MDC_KEY = "correlationId";
+
+    /** The ids accepted from the callers, others are replaced. */
+    private static final Pattern VALID = Pattern.compile("[\\w.-]{1,64}");
+
+    /** The digits of the generated ids. */
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Private constructor to force the use of the static methods.
+     */
+    private CorrelationId() {
+    }
+
+    /** Generates a new id, it's random but not secure, so it's cheap.
+     *
+     * @return 16 hexadecimal characters.
+     */
+    public static String generate() {
+        long random = ThreadLocalRandom.current().nextLong();
+        char[] id = new char[16];
+        for (int i = id.length - 1; i >= 0; i--) {
+            id[i] = DIGITS[(int) (random & 0xf)];
+            random >>>= 4;
+        }
+        return new String(id);
+    }
+
+    /** Obtains the id to use for a request.
+     *
+     * @param received The id received in the request, can be null.
+     * @return The received id if it's valid, otherwise a new one.
+     */
+    public static String resolve(String received) {
+        if (received != null && VALID.matcher(received).matches()) {
+            return received;
+        }
+        return generate();
+    }
+
+    /** Gets the id of the current thread.
+     *
+     * @return The id, or null if there is none.
+     */
+    public static String current() {
+        return MDC.get(MDC_KEY);
+    }
+
+    /** Wraps a task to run it with the id of the current thread.
+     *
+     * @param task The task to wrap, cannot be null.
+     * @return The wrapped task, or the same task if there is no id.
+     */
+    public static Runnable wrap(Runnable task) {
+        String id = current();
+        if (id == null) {
+            return task;
+        }
+        return () -> {
+            String previous = current();
+            MDC.put(MDC_KEY, id);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /** Wraps a task to run it with the id of the current thread.
+     *
+     * @param task The task to wrap, cannot be null.
+     * @param <T>  The type of the result of the task.
+     * @return The wrapped task, or the same task if there is no id.
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        String id = current();
+        if (id == null) {
+            return task;
+        }
+        return () -> {
+            String previous = current();
+            MDC.put(MDC_KEY, id);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /** Restores the id the thread had before running a wrapped task.
+     *
+     * @param previous The previous id, can be null.
+     */
+    private static void restore(String previous) {
+        if (previous == null) {
+            MDC.remove(MDC_KEY);
+        } else {
+            MDC.put(MDC_KEY, previous);
+        }
+    }
+}
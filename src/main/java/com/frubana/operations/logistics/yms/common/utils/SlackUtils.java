@@ -1,6 +1,9 @@
 package com.frubana.operations.logistics.yms.common.utils;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,13 +14,32 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** Slack notification util
  * Sends messages to slack channels using a URI corresponding to a web hook.
+ * <p> The messages are queued and sent by a background thread, so the
+ * callers never wait for slack. The same message sent several times inside
+ * the coalesce window is sent once with the number of times, and when the
+ * queue is full the new messages are dropped and counted in the
+ * slack.notifications.dropped metric.
+ * <p> A batch is sent when the window ends or when it has the max number
+ * of distinct messages, the messages still queued go to the next batch.
  */
 @Component
 public class SlackUtils {
+    /** Max number of distinct messages sent in a batch. */
+    private static final int MAX_BATCH = 50;
+
     /** Logger for the client, it's never null.  */
     private final Logger logger = LoggerFactory.getLogger(SlackUtils.class);
 
@@ -31,33 +53,143 @@ public class SlackUtils {
     /** Slack uri with the web hook, it's never null. */
     private final String uri;
 
+    /** The messages waiting to be sent, it's never null. */
+    private final BlockingQueue<Notification> queue;
+
+    /** Time the sender waits for duplicates after taking a message. */
+    private final long coalesceWindowNanos;
+
+    /** Number of messages dropped because the queue was full. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** The thread that sends the queued messages, null until started. */
+    private Thread sender;
+
     /** Constructor.
      *
-     * @param uri Slack uri of the web hook.
+     * @param uri                Slack uri of the web hook.
+     * @param restTemplate       Rest client to call slack.
+     * @param logFormatter       The formatter utility to log errors.
+     * @param registry           The registry of the meters.
+     * @param queueCapacity      Max number of messages waiting to be sent.
+     * @param coalesceWindowMs   Milliseconds to wait for duplicates of a
+     *                           message before sending it.
      */
     @Autowired
     public SlackUtils(@Value("${log.slack.uri}") String uri,
-                      RestTemplate restTemplate, FormattedLogger logFormatter) {
+                      RestTemplate restTemplate, FormattedLogger logFormatter,
+                      MeterRegistry registry,
+                      @Value("${log.slack.queue-capacity:1000}")
+                              int queueCapacity,
+                      @Value("${log.slack.coalesce-window-ms:5000}")
+                              long coalesceWindowMs) {
         this.uri = uri;
         this.restTemplate = restTemplate;
         this.logFormatter = logFormatter;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.coalesceWindowNanos =
+                TimeUnit.MILLISECONDS.toNanos(coalesceWindowMs);
+        FunctionCounter.builder("slack.notifications.dropped", dropped,
+                AtomicLong::get)
+                .description("Slack messages dropped with the queue full")
+                .register(registry);
     }
 
-    /** Send a message to slack.
+    /** Starts the thread that sends the queued messages.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (sender == null) {
+            sender = new Thread(this::sendQueued, "slack-notifier");
+            sender.setDaemon(true);
+            sender.start();
+        }
+    }
+
+    /** Stops the thread that sends the queued messages, the messages not
+     * sent yet are discarded.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (sender != null) {
+            sender.interrupt();
+            sender = null;
+        }
+    }
+
+    /** Sends the queued messages until the thread is interrupted, the
+     * duplicates received inside the coalesce window are sent once.
+     * <p> The collection stops at the end of the window, or when the batch
+     * is full, even if more messages keep arriving. A message that fails
+     * with an unexpected error is logged and skipped, the thread keeps
+     * sending the next ones.
+     */
+    private void sendQueued() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Map<Notification, Integer> batch = new LinkedHashMap<>();
+                batch.put(queue.take(), 1);
+                long deadline = System.nanoTime() + coalesceWindowNanos;
+                long remaining = coalesceWindowNanos;
+                while (remaining > 0 && batch.size() < MAX_BATCH) {
+                    Notification next =
+                            queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.merge(next, 1, Integer::sum);
+                    remaining = deadline - System.nanoTime();
+                }
+                batch.forEach(this::send);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Sends a message to slack without letting an error stop the thread
+     * of the notifications.
+     *
+     * @param notification message to be sent.
+     * @param count        times the message was received.
+     */
+    private void send(Notification notification, int count) {
+        try {
+            logMessage(notification, count);
+        } catch (RuntimeException exception) {
+            logger.error("Couldn't send a message to Slack.", exception);
+        }
+    }
+
+    /** Queues a message to be sent to slack, if the queue is full the
+     * message is dropped.
      *
      * @param message message to be sent, cannot be null or empty.
      * @param icon    image string representation to set in the message,
      *                cannot be null or empty.
      */
-    private void logMessage(String message, String icon) {
+    private void enqueue(String message, String icon) {
+        if (!queue.offer(new Notification(message, icon))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** Send a message to slack.
+     *
+     * @param notification message to be sent.
+     * @param count        times the message was received.
+     */
+    private void logMessage(Notification notification, int count) {
+        String message = count > 1
+                ? notification.message + " (x" + count + ")"
+                : notification.message;
         try {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Content-Type", "application/json");
-            String body = "{\"text\":\"CHANGE ME :: " + icon +
-                    message + "\"}";
+            ObjectNode body = JsonUtils.instance.createObjectNode();
+            body.put("text", "CHANGE ME :: " + notification.icon + message);
             HttpEntity<String> entity =
-                    new HttpEntity<>(body, headers);
+                    new HttpEntity<>(body.toString(), headers);
             ParameterizedTypeReference<String> typeRef =
                     new ParameterizedTypeReference<>() {
                     };
@@ -79,15 +211,62 @@ public class SlackUtils {
         }
     }
 
+    /** Gets the number of messages dropped because the queue was full.
+     *
+     * @return the number of dropped messages.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
     /** Sends a error message to slack.
      *
      * @param message message to be sent.
      */
-    public void logError(String message) { logMessage(message, ":boom:"); }
+    public void logError(String message) { enqueue(message, ":boom:"); }
 
     /** Sends a info message to slack.
      *
      * @param message message to be sent.
      */
-    public void logInfo(String message) { logMessage(message, ":robot_face:"); }
+    public void logInfo(String message) { enqueue(message, ":robot_face:"); }
+
+    /** A message waiting to be sent, two notifications are equal if they
+     * have the same message and icon.
+     */
+    private static final class Notification {
+        /** The message to send. */
+        private final String message;
+
+        /** The icon of the message. */
+        private final String icon;
+
+        /** Constructor.
+         *
+         * @param message The message to send.
+         * @param icon    The icon of the message.
+         */
+        private Notification(String message, String icon) {
+            this.message = message;
+            this.icon = icon;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Notification)) {
+                return false;
+            }
+            Notification notification = (Notification) other;
+            return Objects.equals(message, notification.message)
+                    && Objects.equals(icon, notification.icon);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(message, icon);
+        }
+    }
 }
@@ -2,19 +2,39 @@ package com.frubana.operations.logistics.yms.yard.application;
 
 import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
 import com.frubana.operations.logistics.yms.common.utils.JsonUtils;
+import com.frubana.operations.logistics.yms.yard.domain.DockOccupancy;
+import com.frubana.operations.logistics.yms.yard.domain.DockRequest;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyOperation;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyResult;
 import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardEvent;
+import com.frubana.operations.logistics.yms.yard.domain.YardPage;
 import com.frubana.operations.logistics.yms.yard.service.YardService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
 
 import static org.springframework.http.ResponseEntity.status;
 
@@ -36,6 +56,15 @@ public class YardController {
     /** The jackson's object mapper, it's never null. */
     private final YardService yardService;
 
+    /** Interval of the comments sent to keep the event streams open. */
+    private final Duration heartbeat;
+
+    /** The jackson's object mapper used to stream the yards, it's never
+     * null. */
+    private final ObjectMapper objectMapper;
+
+    /** Max number of yards of a page. */
+    private static final int MAX_PAGE_SIZE = 1000;
 
 
     /** Creates a new instance of the controller.
@@ -43,12 +72,21 @@ public class YardController {
      * @param yardService   The service used to process the requests,
      *                         required.
      * @param logFormatter     The formatter utility to log errors, required.
+     * @param objectMapper     The mapper to write the streamed yards,
+     *                         required.
+     * @param heartbeatMs      Milliseconds between the comments sent to keep
+     *                         the event streams open.
      */
     @Autowired
     public YardController(YardService yardService,
-                          FormattedLogger logFormatter) {
+                          FormattedLogger logFormatter,
+                          ObjectMapper objectMapper,
+                          @Value("${yms.sse.heartbeat-ms:15000}")
+                                  long heartbeatMs) {
         this.yardService = yardService;
         this.logFormatter = logFormatter;
+        this.objectMapper = objectMapper;
+        this.heartbeat = Duration.ofMillis(heartbeatMs);
 
     }
 
@@ -70,6 +108,8 @@ public class YardController {
      *
      * @param id        The id of the task to request.
      * @param warehouse The warehouse where the task belongs.
+     * @param vehicleTypeName Whether the yard embeds the name of its
+     *                        vehicle type.
      * @return A JSON representing a some object:
      * <code>
      * {@link Yard}
@@ -81,7 +121,9 @@ public class YardController {
     )
     public ResponseEntity<Object> getYardInWarehouseById(
             @PathVariable(value = "warehouse") String warehouse,
-            @PathVariable(value = "id") String id) {
+            @PathVariable(value = "id") String id,
+            @RequestParam(value = "vehicleTypeName", defaultValue = "false")
+                    boolean vehicleTypeName) {
         //Logging the given info
         HashMap<String, Object> params = new HashMap<>();
         params.put("id", id);
@@ -102,6 +144,9 @@ public class YardController {
         if (yardService.exists(id)) {
             // Register the yard throws an error if something fails.
             Yard yard = yardService.getYard(id, warehouse);
+            if (vehicleTypeName) {
+                yard = yardService.withVehicleTypeName(yard);
+            }
             params.put("yard", yard);
             logFormatter.logInfo(logger, "obtainAYard", "found the Yard",
                     params);
@@ -116,8 +161,14 @@ public class YardController {
 
 
     /** Returns the yards of the given warehouse.
+     * <p> The response carries an ETag that changes with any yard of the
+     * warehouse, a request with a matching If-None-Match is answered with
+     * 304 Not Modified and no body.
      *
      * @param warehouse The warehouse where the task belongs.
+     * @param vehicleTypeName Whether the yards embed the name of their
+     *                        vehicle type.
+     * @param request   The request, to check its If-None-Match header.
      * @return A JSON representing a some object:
      * <code>
      * {@link Yard}
@@ -128,7 +179,10 @@ public class YardController {
             produces = MediaType.APPLICATION_JSON_VALUE
     )
     public ResponseEntity<Object> getAllYardsInWarehouse(
-            @PathVariable(value = "warehouse") String warehouse) {
+            @PathVariable(value = "warehouse") String warehouse,
+            @RequestParam(value = "vehicleTypeName", defaultValue = "false")
+                    boolean vehicleTypeName,
+            WebRequest request) {
         //Logging the given info
         HashMap<String, Object> params = new HashMap<>();
         params.put("warehouse", warehouse);
@@ -140,18 +194,19 @@ public class YardController {
                             "The warehouse cannot be null or empty"));
         }
 
+        if (request.checkNotModified(
+                yardService.getYardsTag(warehouse, vehicleTypeName))) {
+            return null;
+        }
+
         // Register the yard throws an error if something fails.
         List<Yard> yards = yardService.getYards(warehouse);
-        params.put("yards", yards);
-        HashMap<String,List<Yard>> yardsByWhs= new HashMap<>();
-        for(Yard yard : yards) {
-            if(!yardsByWhs.containsKey(yard.getColor())){
-                yardsByWhs.put(yard.getColor(), new ArrayList<>());
-            }
-            List currentYards = yardsByWhs.get(yard.getColor());
-            currentYards.add(yard);
-            yardsByWhs.put(yard.getColor(), currentYards);
+        if (vehicleTypeName) {
+            yards = yardService.withVehicleTypeNames(yards);
         }
+        params.put("yards", yards.size());
+        HashMap<String, List<Yard>> yardsByWhs =
+                groupYards(yards, Yard::getColor);
 
         logFormatter.logInfo(logger, "obtainAYard", "found the Yard",
                 params);
@@ -161,8 +216,58 @@ public class YardController {
             return status(HttpStatus.NOT_FOUND).body("Yard not Found");
     }
 
-    /** Returns the yard of the given id.
+    /** Streams the changes of the yards of the given warehouse as server
+     * sent events.
+     * <p> The first event is a SNAPSHOT with all the yards of the warehouse,
+     * then a REGISTER, UPDATE, OCCUPY or FREE event is sent for each changed
+     * yard. The id of each event is the version of the warehouse after the
+     * change.
+     *
+     * @param warehouse The warehouse of the yards.
+     * @return A stream of events representing a {@link YardEvent}:
+     * <code>
+     * event:OCCUPY
+     * id:42
+     * data:{"type":"OCCUPY","warehouse":"PA","version":42,"yard":{...}}
+     * </code>
+     */
+    @GetMapping(
+            value = "/{warehouse}/events",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public Flux<ServerSentEvent<YardEvent>> streamYardsInWarehouse(
+            @PathVariable(value = "warehouse") String warehouse) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        logFormatter.logInfo(logger, "streamYardsInWarehouse",
+                "Received request", params);
+        if (warehouse == null || warehouse.isBlank()) {
+            throw new IllegalArgumentException(
+                    "The warehouse cannot be null or empty");
+        }
+
+        Flux<ServerSentEvent<YardEvent>> changes = yardService
+                .subscribe(warehouse)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(String.valueOf(event.getVersion()))
+                        .event(event.getType().name())
+                        .build());
+        Flux<ServerSentEvent<YardEvent>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<YardEvent>builder()
+                        .comment("heartbeat")
+                        .build());
+        return Flux.merge(changes, heartbeats);
+    }
+
+    /** Returns the yards of all the warehouses.
+     * <p> The response carries an ETag that changes with any yard, a
+     * request with a matching If-None-Match is answered with 304 Not
+     * Modified and no body.
      *
+     * @param vehicleTypeName Whether the yards embed the name of their
+     *                        vehicle type.
+     * @param request The request, to check its If-None-Match header.
      * @return A JSON representing a some object:
      * <code>
      * {@link HashMap}<{@link String} warehouse,
@@ -174,24 +279,27 @@ public class YardController {
             value =  "/",
             produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<Object> getAllYardsByWarehouse() {
+    public ResponseEntity<Object> getAllYardsByWarehouse(
+            @RequestParam(value = "vehicleTypeName", defaultValue = "false")
+                    boolean vehicleTypeName,
+            WebRequest request) {
         //Logging the given info
         HashMap<String, Object> params = new HashMap<>();
         logFormatter.logInfo(logger, "getAllYardsByWarehouse",
                 "Received request", params);
+        if (request.checkNotModified(
+                yardService.getYardsTag(vehicleTypeName))) {
+            return null;
+        }
+
         // Register the yard throws an error if something fails.
         List<Yard> yards = yardService.getYards();
-        params.put("yards", yards);
-        HashMap<String,List<Yard>> yardsByWhs= new HashMap<>();
-        for (Yard yard:yards) {
-            if( !yardsByWhs.containsKey(yard.getWarehouse())) {
-                yardsByWhs.put(yard.getWarehouse(), new ArrayList<>());
-            }
-            List<Yard> currentYards=yardsByWhs.get(yard.getWarehouse());
-            currentYards.add(yard);
-            yardsByWhs.put(yard.getWarehouse(),currentYards);
+        if (vehicleTypeName) {
+            yards = yardService.withVehicleTypeNames(yards);
         }
-
+        params.put("yards", yards.size());
+        HashMap<String, List<Yard>> yardsByWhs =
+                groupYards(yards, Yard::getWarehouse);
 
         logFormatter.logInfo(logger, "obtainAYard", "found the Yard",
                 params);
@@ -201,6 +309,198 @@ public class YardController {
             return status(HttpStatus.NOT_FOUND).body("Yard not Found");
     }
 
+    /** Returns a page of the yards of all the warehouses ordered by id.
+     * <p> The first page is requested without cursor, the next ones with
+     * the cursor returned in the previous page.
+     *
+     * @param after The cursor returned in the previous page, 0 for the first
+     *              page.
+     * @param limit The max number of yards of the page, up to 1000.
+     * @param vehicleTypeName Whether the yards embed the name of their
+     *                        vehicle type.
+     * @return A JSON representing a page of yards:
+     * <code>
+     * {@link YardPage}
+     * </code>
+     */
+    @GetMapping(
+            value =  "/",
+            params = {"limit", "stream!=true"},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Object> getYardsPage(
+            @RequestParam(value = "after", defaultValue = "0") int after,
+            @RequestParam(value = "limit") int limit,
+            @RequestParam(value = "vehicleTypeName", defaultValue = "false")
+                    boolean vehicleTypeName) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("after", after);
+        params.put("limit", limit);
+        logFormatter.logInfo(logger, "getYardsPage", "Received request",
+                params);
+        if (after < 0) {
+            return status(HttpStatus.BAD_REQUEST).body(
+                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
+                            "The cursor cannot be negative"));
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return status(HttpStatus.BAD_REQUEST).body(
+                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
+                            "The limit must be between 1 and "
+                                    + MAX_PAGE_SIZE));
+        }
+
+        YardPage page = yardService.getYards(after, limit);
+        if (vehicleTypeName) {
+            page = new YardPage(
+                    yardService.withVehicleTypeNames(page.getYards()), limit);
+        }
+        params.put("yards", page.getYards().size());
+        params.put("next", page.getNext());
+        logFormatter.logInfo(logger, "getYardsPage", "found the Yards",
+                params);
+        return status(HttpStatus.OK).body(page);
+    }
+
+    /** Streams the yards of all the warehouses grouped by warehouse, the
+     * yards are read from the database by pages and each page is written
+     * before reading the next one, so the memory used does not depend on
+     * the number of yards and no connection is held while writing.
+     * <p> It's requested with stream=true, and it can't be combined with
+     * the limit of the pages.
+     *
+     * @param vehicleTypeName Whether the yards embed the name of their
+     *                        vehicle type.
+     * @return A JSON with the same format of
+     * {@link #getAllYardsByWarehouse(boolean, WebRequest)}, each warehouse
+     * with its yards ordered by id:
+     * <code>
+     * {@link HashMap}<{@link String} warehouse,
+     *                 {@link List}<{@link Yard}>
+     *                >
+     * </code>
+     */
+    @GetMapping(
+            value =  "/",
+            params = {"stream=true", "!limit"},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<StreamingResponseBody> streamAllYardsByWarehouse(
+            @RequestParam(value = "vehicleTypeName", defaultValue = "false")
+                    boolean vehicleTypeName) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        logFormatter.logInfo(logger, "streamAllYardsByWarehouse",
+                "Received request", params);
+        StreamingResponseBody body = output -> {
+            try (JsonGenerator generator =
+                         objectMapper.getFactory().createGenerator(output)) {
+                generator.writeStartObject();
+                String[] current = {null};
+                yardService.forEachYard(yard -> {
+                    String warehouse =
+                            Objects.toString(yard.getWarehouse(), "");
+                    try {
+                        if (!warehouse.equals(current[0])) {
+                            if (current[0] != null) {
+                                generator.writeEndArray();
+                            }
+                            generator.writeArrayFieldStart(warehouse);
+                            current[0] = warehouse;
+                        }
+                        generator.writeObject(vehicleTypeName
+                                ? yardService.withVehicleTypeName(yard)
+                                : yard);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (current[0] != null) {
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
+        };
+        return status(HttpStatus.OK).body(body);
+    }
+
+    /** Rejects the requests that ask for the stream and a page at once,
+     * the stream has all the yards and a page only a limit of them.
+     *
+     * @return A JSON with the error.
+     */
+    @GetMapping(
+            value =  "/",
+            params = {"stream=true", "limit"},
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Object> streamYardsPage() {
+        return status(HttpStatus.BAD_REQUEST).body(
+                JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
+                        "The stream and the limit cannot be combined"));
+    }
+
+    /** Returns the occupancy of each dock of the warehouse over a time
+     * range, with the intervals it was occupied and its utilization, the
+     * events are read from the database by pages and the docks of each page
+     * are written before reading the next one, so no connection is held
+     * while writing.
+     *
+     * @param warehouse the warehouse of the docks.
+     * @param from      the start of the range, inclusive, as an ISO
+     *                  instant like 2026-10-18T00:00:00Z.
+     * @param to        the end of the range, exclusive, as an ISO instant.
+     * @return A JSON with the occupancy of each dock ordered by id:
+     * <code>
+     * {@link List}<{@link DockOccupancy}>
+     * </code>
+     * @throws IllegalArgumentException if the range is not valid.
+     */
+    @GetMapping(
+            value =  "/{warehouse}/occupancy",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<StreamingResponseBody> getOccupancyHistory(
+            @PathVariable(value = "warehouse") String warehouse,
+            @RequestParam(value = "from") String from,
+            @RequestParam(value = "to") String to) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        params.put("from", from);
+        params.put("to", to);
+        logFormatter.logInfo(logger, "getOccupancyHistory",
+                "Received request", params);
+        Instant start;
+        Instant end;
+        try {
+            start = Instant.parse(from);
+            end = Instant.parse(to);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(
+                    "The range must be ISO instants", e);
+        }
+        yardService.checkOccupancyRange(start, end);
+
+        StreamingResponseBody body = output -> {
+            try (JsonGenerator generator =
+                         objectMapper.getFactory().createGenerator(output)) {
+                generator.writeStartArray();
+                yardService.forEachDockOccupancy(warehouse, start, end,
+                        dock -> {
+                            try {
+                                generator.writeObject(dock);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                generator.writeEndArray();
+            }
+        };
+        return status(HttpStatus.OK).body(body);
+    }
+
     /** Generates the yard.
      *
      * @param yard the yard object to be persisted in the repository, cannot be
@@ -240,6 +540,49 @@ public class YardController {
     }
 
 
+    /** Generates several yards of a warehouse at once.
+     *
+     * @param warehouse the warehouse of the yards.
+     * @param yards     the yard objects to be persisted in the repository,
+     *                  cannot be null or empty.
+     * @return A JSON representing the created yards, in the same order:
+     * <code>
+     * {@link List}<{@link Yard}>
+     * </code>
+     */
+    @PostMapping(
+            value = "/{warehouse}/bulk",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Object> registerAll(
+            @PathVariable(value = "warehouse") String warehouse,
+            @RequestBody final List<Yard> yards) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("yards", yards == null ? 0 : yards.size());
+        params.put("warehouse", warehouse);
+        logFormatter.logInfo(logger, "registerYards",
+                "Received request", params);
+        if (yards == null || yards.isEmpty()) {
+            return status(HttpStatus.BAD_REQUEST).body(
+                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
+                            "The Yards cannot be null or empty"));
+        }
+        return status(HttpStatus.CREATED).body(
+                yardService.registerYards(yards, warehouse)
+        );
+    }
+
+    /** Marks a yard as occupied.
+     *
+     * @param yard the yard with the assignation number, warehouse and color
+     *             to occupy, cannot be null.
+     * @return A JSON representing the occupied yard:
+     * <code>
+     * {@link Yard}
+     * </code>
+     * or a 404 status if no yard matched.
+     */
     @PostMapping(
             value = "/occupy",
             produces = MediaType.APPLICATION_JSON_VALUE
@@ -247,11 +590,24 @@ public class YardController {
     public ResponseEntity<Object> ocuparMuelle(
             @RequestBody final Yard yard) {
 
-        return status(HttpStatus.OK).body(
-                yardService.ocuparMuelle(yard));
-
+        return yardService.ocuparMuelle(yard)
+                .<ResponseEntity<Object>>map(
+                        occupied -> status(HttpStatus.OK).body(occupied))
+                .orElseGet(() -> status(HttpStatus.NOT_FOUND).body(
+                        JsonUtils.jsonResponse(HttpStatus.NOT_FOUND,
+                                "Yard not Found")));
     }
 
+    /** Marks a yard as free.
+     *
+     * @param yard the yard with the assignation number, warehouse and color
+     *             to free, cannot be null.
+     * @return A JSON representing the freed yard:
+     * <code>
+     * {@link Yard}
+     * </code>
+     * or a 404 status if no yard matched.
+     */
     @PostMapping(
             value = "/free",
             produces = MediaType.APPLICATION_JSON_VALUE
@@ -259,12 +615,85 @@ public class YardController {
     public ResponseEntity<Object> liiberarMuelle(
             @RequestBody final Yard yard) {
 
+        return yardService.liberarMuelle(yard)
+                .<ResponseEntity<Object>>map(
+                        free -> status(HttpStatus.OK).body(free))
+                .orElseGet(() -> status(HttpStatus.NOT_FOUND).body(
+                        JsonUtils.jsonResponse(HttpStatus.NOT_FOUND,
+                                "Yard not Found")));
+    }
+
+    /** Assigns a free dock of the warehouse to an arriving vehicle and
+     * marks it as occupied, so the clients do not pick a dock themselves.
+     *
+     * @param warehouse the warehouse where the vehicle arrives.
+     * @param request   the vehicle type and the optional preferred colors,
+     *                  cannot be null.
+     * @return A JSON representing the assigned yard:
+     * <code>
+     * {@link Yard}
+     * </code>
+     * or a 404 status if the warehouse has no free dock for the vehicle.
+     */
+    @PostMapping(
+            value = "/{warehouse}/assign",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Object> assignDock(
+            @PathVariable(value = "warehouse") String warehouse,
+            @RequestBody final DockRequest request) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("warehouse", warehouse);
+        params.put("request", request);
+        logFormatter.logInfo(logger, "assignDock",
+                "Received request", params);
+        if (request == null) {
+            return status(HttpStatus.BAD_REQUEST).body(
+                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
+                            "The request cannot be null"));
+        }
+        return yardService.assignDock(warehouse, request)
+                .<ResponseEntity<Object>>map(
+                        assigned -> status(HttpStatus.OK).body(assigned))
+                .orElseGet(() -> status(HttpStatus.NOT_FOUND).body(
+                        JsonUtils.jsonResponse(HttpStatus.NOT_FOUND,
+                                "No free dock for the vehicle type")));
+    }
+
+    /** Applies a batch of occupy and free operations from the gate events.
+     *
+     * @param operations the operations to apply in order, cannot be null or
+     *                   empty.
+     * @return A JSON with the result of each operation, in the same order:
+     * <code>
+     * {@link List}<{@link OccupancyResult}>
+     * </code>
+     */
+    @PostMapping(
+            value = "/occupancy",
+            produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    public ResponseEntity<Object> applyOccupancy(
+            @RequestBody final List<OccupancyOperation> operations) {
+        //Logging the given info
+        HashMap<String, Object> params = new HashMap<>();
+        params.put("operations", operations == null ? 0 : operations.size());
+        logFormatter.logInfo(logger, "applyOccupancy",
+                "Received request", params);
+        if (operations == null || operations.isEmpty()) {
+            return status(HttpStatus.BAD_REQUEST).body(
+                    JsonUtils.jsonResponse(HttpStatus.BAD_REQUEST,
+                            "The operations cannot be null or empty"));
+        }
         return status(HttpStatus.OK).body(
-                yardService.liberarMuelle(yard)
-        );
+                yardService.applyOccupancy(operations));
     }
 
     /** Updates the yard.
+     * <p> The update is only applied if the yard is still in the version
+     * sent in the body, if it has no version it's only checked that the
+     * yard does not change while it's updated.
      *
      * @param yard the yard object to be updated in the repository, cannot be
      *             null.
@@ -279,6 +708,12 @@ public class YardController {
      *     "message": "not_found",
      *     "status": 404
      * }
+     * or, if the yard was changed since the sent version
+     * {
+     *     "message": "The yard was changed, expected version 3 but it's 4",
+     *     "status": 409,
+     *     "yard": {@link Yard}
+     * }
      * </code>
      */
     @PutMapping(
@@ -303,7 +738,27 @@ public class YardController {
         if(!yardService.exists(yardId)) {
             return status(HttpStatus.NOT_FOUND).body("Not Found");
         }
-        return status(HttpStatus.OK).body(
-                yardService.update(yard,yardId));
+        return yardService.update(yard, yardId)
+                .<ResponseEntity<Object>>map(
+                        updated -> status(HttpStatus.OK).body(updated))
+                .orElseGet(() -> status(HttpStatus.NOT_FOUND)
+                        .body("Not Found"));
+    }
+
+    /** Groups the yards by the given key keeping their order in each group.
+     *
+     * @param yards the yards to group, cannot be null.
+     * @param key   obtains the key of the group of a yard, like the color or
+     *              the warehouse.
+     * @return the yards of each key.
+     */
+    static HashMap<String, List<Yard>> groupYards(
+            List<Yard> yards, Function<Yard, String> key) {
+        HashMap<String, List<Yard>> groups = new HashMap<>();
+        for (Yard yard : yards) {
+            groups.computeIfAbsent(key.apply(yard), k -> new ArrayList<>())
+                    .add(yard);
+        }
+        return groups;
     }
 }
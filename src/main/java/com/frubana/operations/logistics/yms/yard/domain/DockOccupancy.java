@@ -0,0 +1,153 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.time.Instant;
+import java.util.List;
+
+/** Represents the occupancy of a dock over a time range, computed from the
+ * occupancy event log.
+ * <p> This is an example of the generated JSON, the moments are in UTC.
+ * <code>
+ * {
+ *    "yardId":7,
+ *    "color":"#ff0000",
+ *    "assignationNumber":3,
+ *    "intervals":[
+ *       {
+ *          "from":"2026-10-18T08:00:00Z",
+ *          "to":"2026-10-18T09:30:00Z"
+ *       }
+ *    ],
+ *    "occupiedSeconds":5400,
+ *    "utilization":0.1875
+ * }
+ * </code>
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class DockOccupancy {
+
+    //the id of the dock
+    private final int yardId;
+
+    //the assigned color of the dock
+    private final String color;
+
+    //the assignation number of the dock
+    private final int assignationNumber;
+
+    //the intervals the dock was occupied in the range, in order
+    private final List<Interval> intervals;
+
+    //the seconds the dock was occupied in the range
+    private final long occupiedSeconds;
+
+    //the fraction of the range the dock was occupied, between 0 and 1
+    private final double utilization;
+
+    /**
+     * Creates a new instance of the occupancy.
+     * @param yardId the id of the dock.
+     * @param color the assigned color of the dock.
+     * @param assignationNumber the assignation number of the dock.
+     * @param intervals the intervals the dock was occupied, in order.
+     * @param occupiedSeconds the seconds the dock was occupied.
+     * @param utilization the fraction of the range the dock was occupied.
+     */
+    public DockOccupancy(int yardId, String color, int assignationNumber,
+                         List<Interval> intervals, long occupiedSeconds,
+                         double utilization) {
+        this.yardId = yardId;
+        this.color = color;
+        this.assignationNumber = assignationNumber;
+        this.intervals = intervals;
+        this.occupiedSeconds = occupiedSeconds;
+        this.utilization = utilization;
+    }
+
+    /**
+     * get the id of the dock.
+     * @return the id.
+     */
+    public int getYardId() {
+        return yardId;
+    }
+
+    /**
+     * get the assigned color of the dock.
+     * @return the color in hex format.
+     */
+    public String getColor() {
+        return color;
+    }
+
+    /**
+     * get the assignation number of the dock.
+     * @return the assignation number.
+     */
+    public int getAssignationNumber() {
+        return assignationNumber;
+    }
+
+    /**
+     * get the intervals the dock was occupied in the range.
+     * @return the intervals in order, never null.
+     */
+    public List<Interval> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * get the seconds the dock was occupied in the range.
+     * @return the seconds.
+     */
+    public long getOccupiedSeconds() {
+        return occupiedSeconds;
+    }
+
+    /**
+     * get the fraction of the range the dock was occupied.
+     * @return the utilization between 0 and 1.
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /** An interval in which a dock was occupied.
+     */
+    @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+    public static class Interval {
+
+        //the moment the dock was occupied, or the start of the range
+        private final Instant from;
+
+        //the moment the dock was freed, or the end of the range
+        private final Instant to;
+
+        /**
+         * Creates a new interval.
+         * @param from the moment the dock was occupied.
+         * @param to the moment the dock was freed.
+         */
+        public Interval(Instant from, Instant to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * get the moment the dock was occupied.
+         * @return the start of the interval.
+         */
+        public Instant getFrom() {
+            return from;
+        }
+
+        /**
+         * get the moment the dock was freed.
+         * @return the end of the interval.
+         */
+        public Instant getTo() {
+            return to;
+        }
+    }
+}
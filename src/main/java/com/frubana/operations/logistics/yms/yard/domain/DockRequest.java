@@ -0,0 +1,58 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.List;
+
+/** Represents a vehicle arriving to a warehouse that needs a free dock.
+ * <p> This is just a DTO that will be created by Jackson within the
+ * application layer.
+ * <p> This is an example of the expected JSON, the colors are optional.
+ * <code>
+ * {
+ *    "vehicleType":1,
+ *    "colors":["#ff0000","#00ff00"]
+ * }
+ * </code>
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class DockRequest {
+
+    //the vehicle type that the dock must support
+    private int vehicleType;
+
+    //the preferred colors of the dock, in order
+    private List<String> colors;
+
+    /**
+     * Creates a new request.
+     * @param vehicleType the vehicle type that the dock must support.
+     * @param colors the preferred colors of the dock in order, can be null.
+     */
+    public DockRequest(int vehicleType, List<String> colors) {
+        this.vehicleType = vehicleType;
+        this.colors = colors;
+    }
+
+    /**
+     * Used for be created from the JSON, don't use it in the code!.
+     */
+    public DockRequest() {
+    }
+
+    /**
+     * get the vehicle type that the dock must support.
+     * @return the id of the vehicle type.
+     */
+    public int getVehicleType() {
+        return vehicleType;
+    }
+
+    /**
+     * get the preferred colors of the dock.
+     * @return the colors in order, never null.
+     */
+    public List<String> getColors() {
+        return colors == null ? List.of() : colors;
+    }
+}
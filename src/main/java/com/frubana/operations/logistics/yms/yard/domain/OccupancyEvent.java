@@ -0,0 +1,123 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import java.time.Instant;
+
+/** Represents a change of the occupied flag of a yard, as stored in the
+ * occupancy event log.
+ */
+public class OccupancyEvent {
+
+    //the id of the changed yard
+    private final int yardId;
+
+    //the warehouse of the yard
+    private final String warehouse;
+
+    //the assigned color of the yard
+    private final String color;
+
+    //the assignation number of the yard
+    private final int assignationNumber;
+
+    //the value of the occupied flag after the change
+    private final boolean occupied;
+
+    //the version of the yard after the change
+    private final int version;
+
+    //the moment of the change
+    private final Instant occurredAt;
+
+    /**
+     * Creates a new event.
+     * @param yardId the id of the changed yard.
+     * @param warehouse the warehouse of the yard.
+     * @param color the assigned color of the yard.
+     * @param assignationNumber the assignation number of the yard.
+     * @param occupied the value of the occupied flag after the change.
+     * @param version the version of the yard after the change.
+     * @param occurredAt the moment of the change.
+     */
+    public OccupancyEvent(int yardId, String warehouse, String color,
+                          int assignationNumber, boolean occupied,
+                          int version, Instant occurredAt) {
+        this.yardId = yardId;
+        this.warehouse = warehouse;
+        this.color = color;
+        this.assignationNumber = assignationNumber;
+        this.occupied = occupied;
+        this.version = version;
+        this.occurredAt = occurredAt;
+    }
+
+    /**
+     * Creates the event of a yard changed by an occupancy operation.
+     * @param yard the yard after the change.
+     * @param occupied the value of the occupied flag set by the change.
+     * @param occurredAt the moment of the change.
+     * @return the event.
+     */
+    public static OccupancyEvent of(Yard yard, boolean occupied,
+                                    Instant occurredAt) {
+        return new OccupancyEvent(yard.getId(), yard.getWarehouse(),
+                yard.getAssignedColor(), yard.getAssignationNumber(),
+                occupied, yard.getVersion() == null ? 0 : yard.getVersion(),
+                occurredAt);
+    }
+
+    /**
+     * get the id of the changed yard.
+     * @return the id.
+     */
+    public int getYardId() {
+        return yardId;
+    }
+
+    /**
+     * get the warehouse of the yard.
+     * @return the warehouse.
+     */
+    public String getWarehouse() {
+        return warehouse;
+    }
+
+    /**
+     * get the assigned color of the yard.
+     * @return the color in hex format.
+     */
+    public String getColor() {
+        return color;
+    }
+
+    /**
+     * get the assignation number of the yard.
+     * @return the assignation number.
+     */
+    public int getAssignationNumber() {
+        return assignationNumber;
+    }
+
+    /**
+     * get the value of the occupied flag after the change.
+     * @return true if the yard was occupied.
+     */
+    public boolean isOccupied() {
+        return occupied;
+    }
+
+    /**
+     * get the version of the yard after the change.
+     * @return the version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * get the moment of the change.
+     * @return the moment.
+     */
+    public Instant getOccurredAt() {
+        return occurredAt;
+    }
+}
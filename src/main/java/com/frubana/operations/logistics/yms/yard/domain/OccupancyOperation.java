@@ -0,0 +1,93 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.apache.commons.lang3.StringUtils;
+
+/** Represents a change of the occupied flag of a yard, received in batches
+ * from the gate events.
+ * <p> This is just a DTO that will be created by Jackson within the
+ * application layer.
+ * <p> This is an example of the expected JSON.
+ * <code>
+ * {
+ *    "operation":"OCCUPY",
+ *    "yard":{
+ *       "color":"#ff0000",
+ *       "assignationNumber":3,
+ *       "warehouse":"PA"
+ *    }
+ * }
+ * </code>
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class OccupancyOperation {
+
+    /** The kind of change to apply. */
+    public enum Type {
+        /** Marks the yard as occupied. */
+        OCCUPY,
+        /** Marks the yard as free. */
+        FREE
+    }
+
+    //the change to apply to the yard
+    private Type operation;
+
+    //the yard with the assignation number, warehouse and color to change
+    private Yard yard;
+
+    /**
+     * Creates a new operation.
+     * @param operation the change to apply.
+     * @param yard the yard with the assignation number, warehouse and color
+     *             to change.
+     */
+    public OccupancyOperation(Type operation, Yard yard) {
+        this.operation = operation;
+        this.yard = yard;
+    }
+
+    /**
+     * Used for be created from the JSON, don't use it in the code!.
+     */
+    public OccupancyOperation() {
+    }
+
+    /**
+     * get the change to apply.
+     * @return the {@link Type} of the change.
+     */
+    public Type getOperation() {
+        return operation;
+    }
+
+    /**
+     * get the yard to change.
+     * @return the {@link Yard} with the assignation number, warehouse and
+     * color to search.
+     */
+    public Yard getYard() {
+        return yard;
+    }
+
+    /**
+     * get the value of the occupied flag after the change.
+     * @return true if the operation occupies the yard.
+     */
+    @JsonIgnore
+    public boolean isOccupy() {
+        return operation == Type.OCCUPY;
+    }
+
+    /**
+     * Checks if the operation has all the data to search the yard.
+     * @return True if the operation can be applied.
+     */
+    @JsonIgnore
+    public boolean isValid() {
+        return operation != null && yard != null
+                && StringUtils.isNotBlank(yard.getWarehouse())
+                && StringUtils.isNotBlank(yard.getAssignedColor());
+    }
+}
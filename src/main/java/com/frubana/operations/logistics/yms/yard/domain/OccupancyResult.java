@@ -0,0 +1,81 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+/** Represents the result of an {@link OccupancyOperation} applied in a
+ * batch.
+ * <p> This is an example of the generated JSON.
+ * <code>
+ * {
+ *    "success":false,
+ *    "yard":null,
+ *    "message":"Yard not Found"
+ * }
+ * </code>
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class OccupancyResult {
+
+    //true if the operation was applied
+    private final boolean success;
+
+    //the state of the yard after the batch, null if the operation failed
+    private final Yard yard;
+
+    //the reason of the failure, null if the operation was applied
+    private final String message;
+
+    /**
+     * Creates a new instance of the result.
+     * @param success true if the operation was applied.
+     * @param yard the state of the yard after the batch.
+     * @param message the reason of the failure.
+     */
+    private OccupancyResult(boolean success, Yard yard, String message) {
+        this.success = success;
+        this.yard = yard;
+        this.message = message;
+    }
+
+    /**
+     * Creates the result of an applied operation.
+     * @param yard the state of the yard after the batch.
+     * @return the successful result.
+     */
+    public static OccupancyResult applied(Yard yard) {
+        return new OccupancyResult(true, yard, null);
+    }
+
+    /**
+     * Creates the result of an operation that couldn't be applied.
+     * @param message the reason of the failure.
+     * @return the failed result.
+     */
+    public static OccupancyResult failed(String message) {
+        return new OccupancyResult(false, null, message);
+    }
+
+    /**
+     * check if the operation was applied.
+     * @return true if the operation was applied.
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * get the state of the yard after the batch.
+     * @return the {@link Yard}, null if the operation failed.
+     */
+    public Yard getYard() {
+        return yard;
+    }
+
+    /**
+     * get the reason of the failure.
+     * @return the message, null if the operation was applied.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
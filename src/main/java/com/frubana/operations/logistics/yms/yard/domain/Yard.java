@@ -2,6 +2,9 @@ package com.frubana.operations.logistics.yms.yard.domain;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.apache.commons.lang3.StringUtils;
 
 import java.math.BigInteger;
@@ -54,6 +57,15 @@ public class Yard {
     //the vehicle type supported by this yard
     private int vehicleType;
 
+    //the version of the yard, it changes with each write, null in the
+    //requests that do not check it
+    private Integer version;
+
+    //the name of the vehicle type, only set in the responses that embed it
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String vehicleTypeName;
+
 
 
     /**
@@ -69,6 +81,7 @@ public class Yard {
         this.assignationNumber=assignationNumber;
         this.validate();
         this.occupied = occupied;
+        this.version = 0;
     }
 
     /**
@@ -105,6 +118,16 @@ public class Yard {
         }
     }
 
+    /***
+     * get the color assigned to the yard, ignoring the occupied color
+     * returned by {@link #getColor()}.
+     * @return the assigned color in hex format.
+     */
+    @JsonIgnore
+    public String getAssignedColor() {
+        return this.color;
+    }
+
     /**
      * retrieve the warehouse
      * @return {@link String} the warehouse
@@ -150,8 +173,50 @@ public class Yard {
         return this.vehicleType;
     }
 
+    /***
+     * get the name of the vehicle type, only set in the copies created by
+     * {@link #withVehicleTypeName(String)}.
+     * @return the name, or null if it was not embedded.
+     */
+    public String getVehicleTypeName() {
+        return this.vehicleTypeName;
+    }
+
+    /***
+     * Creates a copy of the yard with the name of its vehicle type, this
+     * yard is not changed so it can be shared by concurrent readers.
+     * @param name the name of the vehicle type, null if it has none.
+     * @return the copy with the name.
+     */
+    public Yard withVehicleTypeName(String name) {
+        Yard copy = new Yard();
+        copyTo(copy);
+        copy.id = this.id;
+        copy.occupied = this.occupied;
+        copy.version = this.version;
+        copy.vehicleTypeName = name;
+        return copy;
+    }
+
 
     public int getId() {
         return id;
     }
+
+    /***
+     * get the version of the yard, the updates are only applied if the
+     * version is still the current one.
+     * @return the version, null if a request did not send it.
+     */
+    public Integer getVersion() {
+        return version;
+    }
+
+    /***
+     * set the version of the yard as stored in the repository.
+     * @param version the current version.
+     */
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+/** Thrown when a write is based on a version of a yard that is no longer
+ * the current one, because another write changed the yard meanwhile.
+ * <p> It carries the current state of the yard, so the client can apply
+ * its change again over it.
+ */
+public class YardConflictException extends IllegalStateException {
+
+    /** The current state of the yard, can be null. */
+    private final transient Yard current;
+
+    /** Constructor.
+     *
+     * @param expectedVersion The version the write was based on.
+     * @param current         The current state of the yard, can be null.
+     */
+    public YardConflictException(int expectedVersion, Yard current) {
+        super("The yard was changed, expected version " + expectedVersion
+                + (current == null ? "" : " but it's "
+                + current.getVersion()));
+        this.current = current;
+    }
+
+    /** Obtains the current state of the yard.
+     *
+     * @return The yard, or null if it's unknown.
+     */
+    public Yard getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,125 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/** Represents a change of the yards of a warehouse pushed to the boards.
+ * <p> The version orders the events of a warehouse, the boards apply the
+ * snapshot received on connect and then each event replacing the yard with
+ * the same id.
+ * <p> This is an example of the generated JSON.
+ * <code>
+ * {
+ *    "type":"OCCUPY",
+ *    "warehouse":"PA",
+ *    "version":42,
+ *    "yard":{
+ *       "id":7,
+ *       "color":"#ff0000",
+ *       "assignationNumber":3,
+ *       "warehouse":"PA",
+ *       "occupied":true,
+ *       "vehicleType":1
+ *    }
+ * }
+ * </code>
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class YardEvent {
+
+    /** The kind of change. */
+    public enum Type {
+        /** All the yards of the warehouse, sent on connect. */
+        SNAPSHOT,
+        /** A yard was registered. */
+        REGISTER,
+        /** A yard was updated. */
+        UPDATE,
+        /** A yard was occupied. */
+        OCCUPY,
+        /** A yard was freed. */
+        FREE
+    }
+
+    //the kind of change
+    private final Type type;
+
+    //the warehouse of the changed yards
+    private final String warehouse;
+
+    //the version of the warehouse after the change
+    private final long version;
+
+    //the changed yard, null in the snapshots
+    private final Yard yard;
+
+    //all the yards of the warehouse, only in the snapshots
+    private final List<Yard> yards;
+
+    /**
+     * Creates a new instance of the event.
+     * @param type the kind of change.
+     * @param warehouse the warehouse of the changed yards.
+     * @param version the version of the warehouse after the change.
+     * @param yard the changed yard.
+     * @param yards all the yards of the warehouse.
+     */
+    private YardEvent(Type type, String warehouse, long version, Yard yard,
+                      List<Yard> yards) {
+        this.type = type;
+        this.warehouse = warehouse;
+        this.version = version;
+        this.yard = yard;
+        this.yards = yards;
+    }
+
+    /**
+     * Creates the event of a changed yard.
+     * @param type the kind of change.
+     * @param version the version of the warehouse after the change.
+     * @param yard the changed yard.
+     * @return the event.
+     */
+    public static YardEvent of(Type type, long version, Yard yard) {
+        return new YardEvent(type, yard.getWarehouse(), version, yard, null);
+    }
+
+    /**
+     * Creates the snapshot of a warehouse.
+     * @param warehouse the warehouse.
+     * @param version the version read before the yards.
+     * @param yards all the yards of the warehouse.
+     * @return the snapshot event.
+     */
+    public static YardEvent snapshot(String warehouse, long version,
+                                     List<Yard> yards) {
+        return new YardEvent(Type.SNAPSHOT, warehouse, version, null, yards);
+    }
+
+    /**
+     * get the kind of change.
+     * @return the {@link Type} of the event.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * get the warehouse of the changed yards.
+     * @return the warehouse.
+     */
+    public String getWarehouse() {
+        return warehouse;
+    }
+
+    /**
+     * get the version of the warehouse after the change.
+     * @return the version.
+     */
+    public long getVersion() {
+        return version;
+    }
+}
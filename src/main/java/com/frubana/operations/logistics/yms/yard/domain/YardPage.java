@@ -0,0 +1,63 @@
+package com.frubana.operations.logistics.yms.yard.domain;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+
+import java.util.List;
+
+/** Represents a page of yards ordered by id.
+ * <p> The next page is requested with the returned cursor, which is null
+ * in the last page.
+ * <p> This is an example of the generated JSON.
+ * <code>
+ * {
+ *    "yards":[
+ *       {
+ *          "id":7,
+ *          "color":"#ff0000",
+ *          "assignationNumber":3,
+ *          "warehouse":"PA",
+ *          "occupied":false,
+ *          "vehicleType":1
+ *       }
+ *    ],
+ *    "next":7
+ * }
+ * </code>
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
+public class YardPage {
+
+    //the yards of the page ordered by id
+    private final List<Yard> yards;
+
+    //the cursor of the next page, null if this is the last page
+    private final Integer next;
+
+    /**
+     * Creates a new instance of the page.
+     * @param yards the yards of the page ordered by id.
+     * @param limit the requested size of the page, a smaller page is the
+     *              last one.
+     */
+    public YardPage(List<Yard> yards, int limit) {
+        this.yards = yards;
+        this.next = yards.size() < limit
+                ? null : yards.get(yards.size() - 1).getId();
+    }
+
+    /**
+     * get the yards of the page.
+     * @return the yards ordered by id.
+     */
+    public List<Yard> getYards() {
+        return yards;
+    }
+
+    /**
+     * get the cursor of the next page.
+     * @return the id of the last yard of the page, null in the last page.
+     */
+    public Integer getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,139 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.statement.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Allocates the assignation numbers of the yards.
+ * <p> The assignation number is the lowest number, starting at 1, that is
+ * not used by another yard of the same color in the same warehouse, for
+ * example:
+ * <ul>
+ *     <li>if the #ff0000 yards of ALQ have 1,2,3,4,5 the next is 6.</li>
+ *     <li>if the #0000ff yards of ARM have 1,3,4,5 the next is 2.</li>
+ * </ul>
+ * <p> The allocation takes a transaction level advisory lock on the
+ * (warehouse, color) pair, so it must run in the same transaction that
+ * inserts the yard, this way two concurrent registrations never get the
+ * same number, even from different instances.
+ */
+@Component
+public class AssignationNumberAllocator {
+
+    /** Locks the (warehouse, color) pair until the transaction ends. */
+    private static final String LOCK_SQL_QUERY =
+            "SELECT pg_advisory_xact_lock(hashtext(:warehouse)," +
+                    " hashtext(:color))";
+
+    /** Finds the lowest free number in one query, 1 if it's free, otherwise
+     * the first used number whose next number is free. */
+    private static final String NEXT_SQL_QUERY = "SELECT CASE" +
+            " WHEN NOT EXISTS (SELECT 1 FROM yard" +
+            "   WHERE warehouse = :warehouse AND color = :color" +
+            "   AND assignation_number = 1) THEN 1" +
+            " ELSE (SELECT min(cur.assignation_number) + 1 FROM yard cur" +
+            "   WHERE cur.warehouse = :warehouse AND cur.color = :color" +
+            "   AND cur.assignation_number >= 1" +
+            "   AND NOT EXISTS (SELECT 1 FROM yard nxt" +
+            "     WHERE nxt.warehouse = cur.warehouse" +
+            "     AND nxt.color = cur.color" +
+            "     AND nxt.assignation_number =" +
+            "       cur.assignation_number + 1))" +
+            " END";
+
+    /** The used numbers of several colors of a warehouse. */
+    private static final String USED_SQL_QUERY =
+            "SELECT color, assignation_number FROM yard" +
+                    " WHERE warehouse = :warehouse AND color IN (<colors>)" +
+                    " AND assignation_number >= 1";
+
+    /** Obtains the next assignation number of the given color and
+     * warehouse and locks it until the transaction of the handle ends.
+     *
+     * @param handler   the handle with an open transaction where the yard
+     *                  will be inserted, cannot be null.
+     * @param warehouse the warehouse of the yard.
+     * @param color     the assigned color of the yard.
+     * @return the lowest free assignation number.
+     * @throws IllegalStateException if the handle is not in a transaction.
+     */
+    public int next(Handle handler, String warehouse, String color) {
+        lock(handler, warehouse, color);
+        try (Query query = handler.createQuery(NEXT_SQL_QUERY)) {
+            return query.bind("warehouse", warehouse)
+                    .bind("color", color)
+                    .mapTo(int.class).one();
+        }
+    }
+
+    /** Obtains the next assignation numbers of several colors of a
+     * warehouse in one pass and locks them until the transaction of the
+     * handle ends.
+     *
+     * @param handler   the handle with an open transaction where the yards
+     *                  will be inserted, cannot be null.
+     * @param warehouse the warehouse of the yards.
+     * @param counts    the number of yards to register by assigned color.
+     * @return the lowest free assignation numbers of each color, in
+     * ascending order.
+     * @throws IllegalStateException if the handle is not in a transaction.
+     */
+    public Map<String, List<Integer>> next(Handle handler, String warehouse,
+                                           Map<String, Integer> counts) {
+        // Locking in the same order always to avoid dead locks between two
+        // bulk registrations.
+        Map<String, Integer> sorted = new TreeMap<>(counts);
+        sorted.keySet().forEach(color -> lock(handler, warehouse, color));
+
+        Map<String, BitSet> used = new HashMap<>();
+        try (Query query = handler.createQuery(USED_SQL_QUERY)) {
+            query.bind("warehouse", warehouse)
+                    .bindList("colors", new ArrayList<>(sorted.keySet()))
+                    .map((rs, ctx) -> Map.entry(rs.getString("color"),
+                            rs.getInt("assignation_number")))
+                    .forEach(number -> used.computeIfAbsent(
+                            number.getKey(), color -> new BitSet())
+                            .set(number.getValue()));
+        }
+
+        Map<String, List<Integer>> numbers = new HashMap<>();
+        sorted.forEach((color, count) -> {
+            BitSet taken = used.getOrDefault(color, new BitSet());
+            List<Integer> free = new ArrayList<>(count);
+            int number = taken.nextClearBit(1);
+            while (free.size() < count) {
+                free.add(number);
+                number = taken.nextClearBit(number + 1);
+            }
+            numbers.put(color, free);
+        });
+        return numbers;
+    }
+
+    /** Locks the (warehouse, color) pair until the transaction of the handle
+     * ends.
+     *
+     * @param handler   the handle with an open transaction, cannot be null.
+     * @param warehouse the warehouse to lock.
+     * @param color     the color to lock.
+     * @throws IllegalStateException if the handle is not in a transaction.
+     */
+    void lock(Handle handler, String warehouse, String color) {
+        if (!handler.isInTransaction()) {
+            throw new IllegalStateException("The assignation number must " +
+                    "be allocated in the transaction that uses it.");
+        }
+        try (Query query = handler.createQuery(LOCK_SQL_QUERY)) {
+            query.bind("warehouse", warehouse)
+                    .bind("color", color)
+                    .mapToMap().list();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** In-memory priority queues of the free docks of each warehouse, by
+ * vehicle type and color, ordered by assignation number.
+ * <p> The queues of a warehouse are built from the {@link YardIndex} the
+ * first time a dock of the warehouse is requested, and they are kept up to
+ * date with the changes written by this instance of the service. When the
+ * index reloads the warehouse with changes of other instances the queues
+ * are built again.
+ * <p> The queues only propose candidates, the dock is taken in the
+ * repository with a conditional update, so a dock taken meanwhile by
+ * another instance is skipped.
+ */
+@Component
+public class FreeDockIndex {
+
+    /** Order of the free docks of a color. */
+    private static final Comparator<Yard> DOCK_ORDER =
+            Comparator.comparingInt(Yard::getAssignationNumber)
+                    .thenComparingInt(Yard::getId);
+
+    /** The index with the yards of each warehouse, it's never null. */
+    private final YardIndex index;
+
+    /** The free docks of each warehouse. */
+    private final Map<String, WarehouseDocks> warehouses =
+            new ConcurrentHashMap<>();
+
+    /** Constructor.
+     *
+     * @param index The index with the yards of each warehouse, required.
+     */
+    @Autowired
+    public FreeDockIndex(YardIndex index) {
+        this.index = index;
+    }
+
+    /** Removes the best free dock of a warehouse for a vehicle type from
+     * the queues.
+     * <p> The first preferred color with a free dock is used, if none of
+     * them has one the free dock with the lowest assignation number of any
+     * color is used.
+     *
+     * @param warehouse   The warehouse of the dock.
+     * @param vehicleType The vehicle type of the dock.
+     * @param colors      The preferred colors in order, can be empty.
+     * @return The free dock, or null if the warehouse has none.
+     */
+    public Yard poll(String warehouse, int vehicleType, List<String> colors) {
+        String key = key(warehouse);
+        WarehouseDocks docks =
+                warehouses.computeIfAbsent(key, k -> new WarehouseDocks());
+        // Never holds the lock of the docks while reading the index, the
+        // index calls update holding its own lock.
+        long version = index.currentVersion(warehouse);
+        if (docks.version() != version) {
+            docks.rebuild(index.getByWarehouse(warehouse), version);
+        }
+        return docks.poll(vehicleType, colors);
+    }
+
+    /** Applies a persisted change of a yard to the queues, must be called
+     * holding the lock of the {@link YardIndex} right after the yard is put
+     * in it, so the changes are applied in version order.
+     *
+     * @param yard    The persisted yard, if null nothing is done.
+     * @param version The version of the warehouse of the yard after the
+     *                change.
+     */
+    public void update(Yard yard, long version) {
+        if (yard == null) {
+            return;
+        }
+        WarehouseDocks docks = warehouses.get(key(yard.getWarehouse()));
+        if (docks != null) {
+            docks.update(yard, version);
+        }
+    }
+
+    /** Discards the queues of a warehouse, they are built again the next
+     * time a dock is requested.
+     *
+     * @param warehouse The warehouse of the queues.
+     */
+    public void invalidate(String warehouse) {
+        warehouses.remove(key(warehouse));
+    }
+
+    /** Obtains the key of a warehouse, the same of the {@link YardIndex}.
+     *
+     * @param warehouse The warehouse, can be null.
+     * @return The key, never null.
+     */
+    private static String key(String warehouse) {
+        return Objects.toString(warehouse, "");
+    }
+
+    /** The free docks of a warehouse, guarded by its own lock.
+     */
+    private static final class WarehouseDocks {
+
+        /** The free docks by vehicle type and assigned color. */
+        private Map<Integer, Map<String, NavigableSet<Yard>>> free =
+                new HashMap<>();
+
+        /** The queued docks by id, to remove them when they change. */
+        private Map<Integer, Yard> byId = new HashMap<>();
+
+        /** The version of the warehouse in the index that the queues
+         * reflect, -1 if they were never built. */
+        private long version = -1;
+
+        /** Obtains the version of the warehouse the queues reflect.
+         *
+         * @return The version, -1 if they must be built.
+         */
+        private synchronized long version() {
+            return version;
+        }
+
+        /** Replaces the queues with the free docks of the given yards.
+         *
+         * @param yards   The yards of the warehouse.
+         * @param version The version of the warehouse read before the
+         *                yards.
+         */
+        private synchronized void rebuild(List<Yard> yards, long version) {
+            free = new HashMap<>();
+            byId = new HashMap<>();
+            for (Yard yard : yards) {
+                add(yard);
+            }
+            this.version = version;
+        }
+
+        /** Applies a change of a yard, if a change was missed the queues
+         * are marked to be built again.
+         *
+         * @param yard    The changed yard.
+         * @param version The version of the warehouse after the change.
+         */
+        private synchronized void update(Yard yard, long version) {
+            remove(yard.getId());
+            add(yard);
+            this.version = this.version + 1 == version ? version : -1;
+        }
+
+        /** Removes the best free dock for a vehicle type.
+         *
+         * @param vehicleType The vehicle type of the dock.
+         * @param colors      The preferred colors in order.
+         * @return The free dock, or null if there is none.
+         */
+        private synchronized Yard poll(int vehicleType, List<String> colors) {
+            Map<String, NavigableSet<Yard>> byColor = free.get(vehicleType);
+            if (byColor == null) {
+                return null;
+            }
+            NavigableSet<Yard> best = null;
+            for (String color : colors) {
+                NavigableSet<Yard> docks = byColor.get(color);
+                if (docks != null && !docks.isEmpty()) {
+                    best = docks;
+                    break;
+                }
+            }
+            if (best == null) {
+                for (NavigableSet<Yard> docks : byColor.values()) {
+                    if (!docks.isEmpty() && (best == null || DOCK_ORDER
+                            .compare(docks.first(), best.first()) < 0)) {
+                        best = docks;
+                    }
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            Yard dock = best.pollFirst();
+            byId.remove(dock.getId());
+            return dock;
+        }
+
+        /** Queues a yard if it's free.
+         *
+         * @param yard The yard.
+         */
+        private void add(Yard yard) {
+            if (yard.getOccupied()) {
+                return;
+            }
+            free.computeIfAbsent(yard.getVehicleType(), type -> new HashMap<>())
+                    .computeIfAbsent(yard.getAssignedColor(),
+                            color -> new TreeSet<>(DOCK_ORDER))
+                    .add(yard);
+            byId.put(yard.getId(), yard);
+        }
+
+        /** Removes a yard from the queues if it's queued.
+         *
+         * @param id The id of the yard.
+         */
+        private void remove(int id) {
+            Yard queued = byId.remove(id);
+            if (queued != null) {
+                free.get(queued.getVehicleType())
+                        .get(queued.getAssignedColor()).remove(queued);
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyEvent;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.PreparedBatch;
+import org.jdbi.v3.core.statement.Query;
+import org.jdbi.v3.core.statement.UnableToExecuteStatementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/** Repository of the append-only log of the occupancy changes, using JDBI.
+ * <p> The log is partitioned by UTC day. The partitions of the next days
+ * are created ahead by a background thread, each one in its own committed
+ * transaction out of the transactions of the writes, so the writes do not
+ * wait for the lock the creation takes on the log. A write only creates
+ * the partition of its day if the thread could not create it.
+ * <p> The events are inserted with the handle of the write that changes
+ * the yards, so both are in the same transaction.
+ */
+@Component
+public class OccupancyEventRepository {
+
+    /** Inserts an event. */
+    private static final String INSERT_SQL_QUERY =
+            "INSERT INTO yard_occupancy_event (yard_id, warehouse, color," +
+            " assignation_number, occupied, version, occurred_at)" +
+            " VALUES (:yard_id, :warehouse, :color, :assignation_number," +
+            " :occupied, :version, :occurred_at)";
+
+    /** A page of the state of each yard of a warehouse at the start of a
+     * range, followed by the events of the range, ordered by yard and
+     * moment, after a cursor of yard, moment and id.
+     * <p> The state is the one of the last event before the range. A yard
+     * without events before the range keeps its current state if it has no
+     * events since the start either, otherwise it starts free. It has the
+     * start of the range as moment and 0 as id, so it's before the events
+     * of its yard. Each part is limited by itself, so a page only reads the
+     * rows of the page from each one. */
+    private static final String HISTORY_PAGE_SQL_QUERY =
+            "(SELECT y.id AS yard_id, y.warehouse, y.color," +
+            " y.assignation_number, y.version, 0 AS seq, 0 AS id," +
+            " CAST(:from AS timestamptz) AS occurred_at," +
+            " COALESCE(previous.occupied, NOT EXISTS (" +
+            "   SELECT 1 FROM yard_occupancy_event since" +
+            "   WHERE since.warehouse = y.warehouse" +
+            "   and since.yard_id = y.id and since.occurred_at >= :from)" +
+            "   and y.occupied IS TRUE) AS occupied" +
+            " FROM yard y LEFT JOIN LATERAL (" +
+            "   SELECT occupied FROM yard_occupancy_event event" +
+            "   WHERE event.warehouse = y.warehouse" +
+            "   and event.yard_id = y.id and event.occurred_at < :from" +
+            "   ORDER BY event.occurred_at DESC, event.id DESC" +
+            "   LIMIT 1) previous ON true" +
+            " WHERE y.warehouse = :warehouse and y.id > :after_yard" +
+            " ORDER BY y.id LIMIT :limit)" +
+            " UNION ALL" +
+            " (SELECT yard_id, warehouse, color, assignation_number, version," +
+            " 1 AS seq, id, occurred_at, occupied FROM yard_occupancy_event" +
+            " WHERE warehouse = :warehouse" +
+            " and occurred_at >= :from and occurred_at < :to" +
+            " and (yard_id, occurred_at, id) >" +
+            " (:after_yard, :after_at, :after_id)" +
+            " ORDER BY yard_id, occurred_at, id LIMIT :limit)" +
+            " ORDER BY yard_id, seq, occurred_at, id LIMIT :limit";
+
+    /** The name of the partition of each day. */
+    private static final DateTimeFormatter PARTITION_NAME =
+            DateTimeFormatter.ofPattern("'yard_occupancy_event_'yyyyMMdd");
+
+    /** Number of rows read at a time when streaming the events. */
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    /** Number of days after today with their partition created ahead. */
+    private static final int PARTITIONS_AHEAD = 2;
+
+    /** Hours between the creations of the partitions ahead. */
+    private static final long PARTITIONS_PERIOD_HOURS = 1;
+
+    /** Max time the creation of a partition waits for the lock of the log,
+     * it does not wait for a write that inserted events in its still open
+     * transaction. */
+    private static final String PARTITION_LOCK_TIMEOUT = "5s";
+
+    /** Logger. */
+    private final Logger logger =
+            LoggerFactory.getLogger(OccupancyEventRepository.class);
+
+    /** Formatter to set the log in a specific format and add the body as part
+     * of the same log. */
+    private final FormattedLogger logFormatter;
+
+    /** The JDBI instance to request data to the database, it's never null. */
+    private final Jdbi dbi;
+
+    /** The router of the read only queries, it's never null. */
+    private final ReadRouter router;
+
+    /** The JDBI instance of the creation of the partitions, its
+     * connections do not join the spring transactions, it's never null. */
+    private final Jdbi partitionDbi;
+
+    /** The thread that creates the partitions ahead, null until started. */
+    private ScheduledExecutorService scheduler;
+
+    /** The days with a known partition. */
+    private final Set<LocalDate> partitions = ConcurrentHashMap.newKeySet();
+
+    /** Base constructor of the repository.
+     *
+     * @param jdbi         the JDBI instance to use in the writes.
+     * @param router       the router to select the JDBI instance of the
+     *                     reads.
+     * @param dataSource   the pool of the primary database, used without
+     *                     the spring transactions to create the partitions.
+     * @param logFormatter the formatter utility to log errors.
+     */
+    @Autowired
+    public OccupancyEventRepository(Jdbi jdbi, ReadRouter router,
+                                    DataSource dataSource,
+                                    FormattedLogger logFormatter) {
+        this.dbi = jdbi;
+        this.router = router;
+        this.partitionDbi = Jdbi.create(dataSource);
+        this.logFormatter = logFormatter;
+    }
+
+    /** Starts the thread that creates the partitions of today and the next
+     * days, when the application starts and then periodically.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "occupancy-partitions");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::createPartitions, 0,
+                    PARTITIONS_PERIOD_HOURS, TimeUnit.HOURS);
+        }
+    }
+
+    /** Stops the thread that creates the partitions ahead.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /** Creates the partitions of today and the next days that do not exist,
+     * the errors are logged and the creation is tried again in the next
+     * period.
+     */
+    public void createPartitions() {
+        Instant now = Instant.now();
+        try {
+            for (int day = 0; day <= PARTITIONS_AHEAD; day++) {
+                ensurePartition(now.plus(Duration.ofDays(day)));
+            }
+        } catch (RuntimeException e) {
+            logFormatter.logError(logger, "createPartitions",
+                    "Couldn't create the occupancy partitions", null, e);
+        }
+    }
+
+    /** Creates the partition of the day of a moment if it does not exist.
+     * <p> The partition is created in its own transaction, not in the one
+     * of the caller, and the day is only remembered once it's committed.
+     *
+     * @param moment the moment of the events to write.
+     */
+    public void ensurePartition(Instant moment) {
+        LocalDate day = LocalDate.ofInstant(moment, ZoneOffset.UTC);
+        if (partitions.contains(day)) {
+            return;
+        }
+        String name = PARTITION_NAME.format(day);
+        String create = "CREATE TABLE IF NOT EXISTS " + name +
+                " PARTITION OF yard_occupancy_event FOR VALUES" +
+                " FROM ('" + day + "T00:00:00Z')" +
+                " TO ('" + day.plusDays(1) + "T00:00:00Z')";
+        String index = "CREATE INDEX IF NOT EXISTS ix_" + name +
+                " ON " + name + " (warehouse, yard_id, occurred_at)";
+        try {
+            partitionDbi.useTransaction(handler -> {
+                handler.execute("SET LOCAL lock_timeout = '" +
+                        PARTITION_LOCK_TIMEOUT + "'");
+                handler.execute(create);
+                handler.execute(index);
+            });
+        } catch (UnableToExecuteStatementException e) {
+            // Other instance can be creating the same partition.
+            Optional<String> existing = partitionDbi.withHandle(handler ->
+                    handler.createQuery(
+                            "SELECT CAST(to_regclass(:name) AS text)")
+                            .bind("name", name)
+                            .mapTo(String.class)
+                            .findFirst());
+            if (existing.isEmpty()) {
+                throw e;
+            }
+        }
+        partitions.add(day);
+    }
+
+    /** Inserts events in one batch with the handle of the write.
+     *
+     * @param handler the handle of the transaction of the write.
+     * @param events  the events to insert, their partitions must exist.
+     */
+    public void insert(Handle handler, List<OccupancyEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try (PreparedBatch batch = handler.prepareBatch(INSERT_SQL_QUERY)) {
+            for (OccupancyEvent event : events) {
+                batch.bind("yard_id", event.getYardId())
+                        .bind("warehouse", event.getWarehouse())
+                        .bind("color", event.getColor())
+                        .bind("assignation_number",
+                                event.getAssignationNumber())
+                        .bind("occupied", event.isOccupied())
+                        .bind("version", event.getVersion())
+                        .bind("occurred_at",
+                                Timestamp.from(event.getOccurredAt()))
+                        .add();
+            }
+            batch.execute();
+        }
+    }
+
+    /** Streams the events of a warehouse in a range ordered by yard and
+     * moment, each yard of the warehouse starts with an event at the start
+     * of the range with its state at that moment, only a page of rows is
+     * kept in memory at a time.
+     * <p> Each page is read with its own connection, released before the
+     * action runs with its events, so a slow action does not hold a
+     * connection. The pages are not a snapshot, the events written while
+     * they are streamed can be included or not.
+     *
+     * @param warehouse the warehouse of the events.
+     * @param from      the start of the range, inclusive.
+     * @param to        the end of the range, exclusive.
+     * @param action    the action to run with each event.
+     */
+    public void forEach(String warehouse, Instant from, Instant to,
+                        Consumer<OccupancyEvent> action) {
+        HistoryRow last = new HistoryRow(null, 0, 0);
+        List<HistoryRow> rows;
+        do {
+            HistoryRow after = last;
+            rows = router.forWarehouse(warehouse).withHandle(handler -> {
+                try (Query query = handler.createQuery(
+                        HISTORY_PAGE_SQL_QUERY)) {
+                    return query.bind("warehouse", warehouse)
+                            .bind("from", Timestamp.from(from))
+                            .bind("to", Timestamp.from(to))
+                            .bind("after_yard", after.yardId)
+                            .bind("after_at", Timestamp.from(
+                                    after.event == null ? from
+                                            : after.event.getOccurredAt()))
+                            .bind("after_id", after.id)
+                            .bind("limit", STREAM_PAGE_SIZE)
+                            .map((rs, ctx) -> new HistoryRow(
+                                    new OccupancyEvent(
+                                            rs.getInt("yard_id"),
+                                            rs.getString("warehouse"),
+                                            rs.getString("color"),
+                                            rs.getInt("assignation_number"),
+                                            rs.getBoolean("occupied"),
+                                            rs.getInt("version"),
+                                            rs.getTimestamp("occurred_at")
+                                                    .toInstant()),
+                                    rs.getInt("yard_id"),
+                                    rs.getLong("id")))
+                            .list();
+                }
+            });
+            rows.forEach(row -> action.accept(row.event));
+            if (!rows.isEmpty()) {
+                last = rows.get(rows.size() - 1);
+            }
+        } while (rows.size() == STREAM_PAGE_SIZE);
+    }
+
+    /** A row of the history with its position, the cursor of the next
+     * page.
+     */
+    private static final class HistoryRow {
+        /** The event, null in the cursor of the first page. */
+        private final OccupancyEvent event;
+
+        /** The id of the yard of the event. */
+        private final int yardId;
+
+        /** The id of the event, 0 for the state at the start. */
+        private final long id;
+
+        /** Constructor.
+         *
+         * @param event  The event.
+         * @param yardId The id of the yard of the event.
+         * @param id     The id of the event.
+         */
+        private HistoryRow(OccupancyEvent event, int yardId, long id) {
+            this.event = event;
+            this.yardId = yardId;
+            this.id = id;
+        }
+    }
+}
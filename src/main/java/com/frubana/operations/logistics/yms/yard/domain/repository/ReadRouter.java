@@ -0,0 +1,118 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.configuration.JdbiConfiguration;
+import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/** Selects the database used by the read only queries.
+ * <p> The reads go to the read replica, except the reads of a warehouse
+ * written in the last max staleness window, those go to the primary so a
+ * write is always followed by a read that sees it.
+ */
+@Component
+public class ReadRouter {
+
+    /** The JDBI instance of the primary database, it's never null. */
+    private final Jdbi primary;
+
+    /** The JDBI instance of the read replica, it's never null. */
+    private final Jdbi replica;
+
+    /** Time after a write when the reads still go to the primary. */
+    private final long maxStalenessNanos;
+
+    /** The {@link System#nanoTime()} of the last write of each warehouse. */
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    /** The {@link System#nanoTime()} of the last write of any warehouse. */
+    private volatile long lastWrite;
+
+    /** Constructor.
+     *
+     * @param primary          The JDBI instance of the primary database.
+     * @param replica          The JDBI instance of the read replica, the same
+     *                         primary if there is no replica configured.
+     * @param maxStalenessMs   Milliseconds after a write when the reads
+     *                         still go to the primary.
+     */
+    @Autowired
+    public ReadRouter(Jdbi primary,
+                      @Qualifier(JdbiConfiguration.READ_JDBI) Jdbi replica,
+                      @Value("${spring.datasource.replica.max-staleness-ms:2000}")
+                              long maxStalenessMs) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        this.lastWrite = System.nanoTime() - maxStalenessNanos;
+    }
+
+    /** Registers a write in the given warehouse, once the current
+     * transaction commits, or right away if there is no transaction.
+     * <p> It must be called after the write, so the staleness window starts
+     * when the replica can start receiving it.
+     *
+     * @param warehouse The written warehouse.
+     */
+    public void markWrite(String warehouse) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            mark(warehouse);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        mark(warehouse);
+                    }
+                });
+    }
+
+    /** Starts the staleness window of a write in the given warehouse.
+     *
+     * @param warehouse The written warehouse.
+     */
+    private void mark(String warehouse) {
+        long now = System.nanoTime();
+        lastWrites.put(Objects.toString(warehouse, ""), now);
+        lastWrite = now;
+    }
+
+    /** Obtains the JDBI instance to read the data of a warehouse.
+     *
+     * @param warehouse The warehouse to read.
+     * @return The primary if the warehouse was written inside the staleness
+     * window, otherwise the replica.
+     */
+    public Jdbi forWarehouse(String warehouse) {
+        Long written = lastWrites.get(Objects.toString(warehouse, ""));
+        return written != null && isRecent(written) ? primary : replica;
+    }
+
+    /** Obtains the JDBI instance to read data of any warehouse.
+     *
+     * @return The primary if any warehouse was written inside the staleness
+     * window, otherwise the replica.
+     */
+    public Jdbi forAny() {
+        return isRecent(lastWrite) ? primary : replica;
+    }
+
+    /** Checks if a write is inside the staleness window.
+     *
+     * @param written The {@link System#nanoTime()} of the write.
+     * @return True if the reads must go to the primary.
+     */
+    private boolean isRecent(long written) {
+        return System.nanoTime() - written < maxStalenessNanos;
+    }
+}
@@ -0,0 +1,220 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** In-memory dictionary of the vehicle types, with the name of each id and
+ * the id of each name.
+ * <p> The dictionary is read lock free from an immutable snapshot, loaded
+ * when the application starts and updated write-through by the service
+ * after each vehicle type is registered.
+ * <p> The snapshot is reloaded from the {@link VehicleTypeRepository} when
+ * it's older than the configured max age, so the types registered by other
+ * instances of the service are eventually visible.
+ */
+@Component
+public class VehicleTypeCatalog {
+
+    /** Logger. */
+    private final Logger logger =
+            LoggerFactory.getLogger(VehicleTypeCatalog.class);
+
+    /** Formatter to set the log in a specific format and add the body as part
+     * of the same log. */
+    private final FormattedLogger logFormatter;
+
+    /** The repository to load the vehicle types from, it's never null. */
+    private final VehicleTypeRepository repository;
+
+    /** Max age of the snapshot before reloading it, 0 or less never
+     * reloads. */
+    private final long maxAgeNanos;
+
+    /** The loaded vehicle types, null until the first load. */
+    private volatile Snapshot snapshot;
+
+    /** The version of the vehicle types, changes each time they change. */
+    private long version;
+
+    /** Constructor.
+     *
+     * @param repository   The repository to load the vehicle types from,
+     *                     required.
+     * @param logFormatter The formatter utility to log errors, required.
+     * @param maxAgeMs     Milliseconds the vehicle types are served before
+     *                     being reloaded from the repository.
+     */
+    @Autowired
+    public VehicleTypeCatalog(
+            VehicleTypeRepository repository, FormattedLogger logFormatter,
+            @Value("${yms.vehicle-type.catalog.max-age-ms:60000}")
+                    long maxAgeMs) {
+        this.repository = repository;
+        this.logFormatter = logFormatter;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+    }
+
+    /** Loads the vehicle types when the application starts, if it fails
+     * they are loaded lazily when requested.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            logFormatter.logError(logger, "rebuild",
+                    "Couldn't load the vehicle types on startup", null, e);
+        }
+    }
+
+    /** Returns the name of a vehicle type.
+     *
+     * @param id The id of the vehicle type.
+     * @return The name, or null if there is no vehicle type with the id.
+     */
+    public String getName(int id) {
+        return snapshot().names.get(id);
+    }
+
+    /** Returns the id of a vehicle type, the lowest one if several types
+     * have the same name.
+     *
+     * @param name The name of the vehicle type.
+     * @return The id, or null if there is no vehicle type with the name.
+     */
+    public Integer getId(String name) {
+        return snapshot().ids.get(name);
+    }
+
+    /** Returns the names of all the vehicle types ordered by id.
+     *
+     * @return The unmodifiable list of names, never null.
+     */
+    public List<String> getNames() {
+        return snapshot().ordered;
+    }
+
+    /** Returns the version of the vehicle types after reloading them if
+     * they are older than the max age, so the version is as new as the
+     * names served.
+     * <p> To pair a version with the names it must be read before them.
+     *
+     * @return The version, it changes each time a vehicle type is added or
+     * a reload finds changes.
+     */
+    public long currentVersion() {
+        return snapshot().version;
+    }
+
+    /** Adds a vehicle type, must be called once the vehicle type is
+     * persisted.
+     *
+     * @param id   The id of the persisted vehicle type.
+     * @param name The name of the persisted vehicle type.
+     */
+    public synchronized void put(int id, String name) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        Map<Integer, String> names = new LinkedHashMap<>(current.names);
+        names.put(id, name);
+        snapshot = new Snapshot(names, ++version, current.loadedAt);
+    }
+
+    /** Obtains the snapshot, loading it from the repository if it's missing
+     * or expired.
+     *
+     * @return The snapshot, never null.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return load();
+        }
+        if (maxAgeNanos > 0
+                && System.nanoTime() - current.loadedAt > maxAgeNanos
+                && current.refreshing.compareAndSet(false, true)) {
+            try {
+                return load();
+            } finally {
+                current.refreshing.set(false);
+            }
+        }
+        return current;
+    }
+
+    /** Loads the vehicle types from the repository, the version only
+     * changes when the loaded types are not the same of the current ones.
+     *
+     * @return The installed snapshot, never null.
+     */
+    private synchronized Snapshot load() {
+        Map<Integer, String> names = repository.getAllById();
+        Snapshot current = snapshot;
+        long loadedVersion = current != null && current.names.equals(names)
+                ? current.version : ++version;
+        snapshot = new Snapshot(names, loadedVersion, System.nanoTime());
+        return snapshot;
+    }
+
+    /** Immutable vehicle types loaded at a point in time.
+     */
+    private static final class Snapshot {
+
+        /** The name of each id, ordered by id. */
+        private final Map<Integer, String> names;
+
+        /** The lowest id of each name. */
+        private final Map<String, Integer> ids;
+
+        /** The names ordered by id. */
+        private final List<String> ordered;
+
+        /** The version of the vehicle types. */
+        private final long version;
+
+        /** Time of the load from the repository, from System.nanoTime. */
+        private final long loadedAt;
+
+        /** Whether a thread is reloading this snapshot. */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /** Creates the snapshot.
+         *
+         * @param names    The name of each id.
+         * @param version  The version of the vehicle types.
+         * @param loadedAt Time of the load from the repository.
+         */
+        private Snapshot(Map<Integer, String> names, long version,
+                         long loadedAt) {
+            Map<Integer, String> sorted = new LinkedHashMap<>();
+            names.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+            Map<String, Integer> byName = new HashMap<>();
+            sorted.forEach((id, name) -> byName.putIfAbsent(name, id));
+            this.names = Collections.unmodifiableMap(sorted);
+            this.ids = Collections.unmodifiableMap(byName);
+            this.ordered = Collections.unmodifiableList(
+                    new ArrayList<>(sorted.values()));
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
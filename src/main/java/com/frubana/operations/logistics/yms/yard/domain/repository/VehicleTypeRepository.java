@@ -9,7 +9,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Component
 public class VehicleTypeRepository {
@@ -21,6 +23,9 @@ public class VehicleTypeRepository {
     private static final String getInVehicleType  = "SELECT name " +
             "FROM vehicle_type ";
 
+    private static final String getAllInVehicleType = "SELECT id, name " +
+            "FROM vehicle_type ORDER BY id";
+
     /** The JDBI instance to request data to the database, it's never null. */
     private final Jdbi dbi;
 
@@ -49,6 +54,23 @@ public class VehicleTypeRepository {
         }
     }
 
+    /***
+     * Retrieve all the vehicle types from the vehicle_type table
+     * @return the name of each id, ordered by id.
+     */
+    public Map<Integer, String> getAllById()
+    {
+        try (Handle handler = dbi.open();
+            Query query_string = handler.createQuery(getAllInVehicleType)) {
+            Map<Integer, String> types = new LinkedHashMap<>();
+            query_string.map((rs, ctx) -> Map.entry(rs.getInt("id"),
+                    rs.getString("name")))
+                    .forEach(type -> types.put(type.getKey(),
+                            type.getValue()));
+            return types;
+        }
+    }
+
     /***
      * Create an instance of vehicle type in DB
      * @param name the type name
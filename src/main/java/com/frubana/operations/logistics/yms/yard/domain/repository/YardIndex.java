@@ -0,0 +1,656 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** In-memory index of the yards of each warehouse.
+ * <p> The index is read lock free from immutable snapshots per warehouse,
+ * and it's updated write-through by the service after each change is
+ * persisted in the {@link YardRepository}.
+ * <p> Each warehouse snapshot is reloaded from the repository when it's
+ * older than the configured max age, so the changes done by other
+ * instances of the service are eventually visible. Only one reload of each
+ * warehouse, and one of all of them, runs at a time, and the writes applied
+ * while a reload runs are applied again on the reloaded yards.
+ */
+@Component
+public class YardIndex {
+
+    /** Order used by the repository when listing the yards of a warehouse. */
+    private static final Comparator<Yard> ASSIGNATION_ORDER =
+            Comparator.comparingInt(Yard::getAssignationNumber)
+                    .thenComparingInt(Yard::getId);
+
+    /** Logger. */
+    private final Logger logger = LoggerFactory.getLogger(YardIndex.class);
+
+    /** Formatter to set the log in a specific format and add the body as part
+     * of the same log. */
+    private final FormattedLogger logFormatter;
+
+    /** The repository to load the yards from, it's never null. */
+    private final YardRepository repository;
+
+    /** Max age of a snapshot before reloading it, 0 or less never reloads. */
+    private final long maxAgeNanos;
+
+    /** The snapshot of the yards of each loaded warehouse. */
+    private final Map<String, WarehouseYards> warehouses =
+            new ConcurrentHashMap<>();
+
+    /** The warehouse of each indexed yard id. */
+    private final Map<Integer, String> warehouseById =
+            new ConcurrentHashMap<>();
+
+    /** The writes applied while some reload runs, in order, guarded by
+     * the lock of the index. */
+    private final List<Yard> journal = new ArrayList<>();
+
+    /** The sequence of the first write of the journal. */
+    private long journalStart;
+
+    /** Number of reloads running, the journal is cleared when none runs. */
+    private int reloads;
+
+    /** The running load of each warehouse. */
+    private final Map<String, CompletableFuture<WarehouseYards>> loading =
+            new ConcurrentHashMap<>();
+
+    /** The running reload of all the warehouses, null if none runs. */
+    private final AtomicReference<CompletableFuture<List<Yard>>> loadingAll =
+            new AtomicReference<>();
+
+    /** The version of each warehouse, changes each time its yards change. */
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /** The version of all the warehouses, changes with any of them. */
+    private final AtomicLong version = new AtomicLong();
+
+    /** Time of the last load of all the warehouses, 0 if never loaded. */
+    private volatile long allLoadedAt;
+
+    /** Constructor.
+     *
+     * @param repository   The repository to load the yards from, required.
+     * @param logFormatter The formatter utility to log errors, required.
+     * @param maxAgeMs     Milliseconds a snapshot is served before being
+     *                     reloaded from the repository.
+     */
+    @Autowired
+    public YardIndex(YardRepository repository, FormattedLogger logFormatter,
+                     @Value("${yms.yard.index.max-age-ms:5000}")
+                             long maxAgeMs) {
+        this.repository = repository;
+        this.logFormatter = logFormatter;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+    }
+
+    /** Loads all the yards of the repository when the application starts,
+     * if it fails the warehouses are loaded lazily when requested.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            getAll();
+        } catch (RuntimeException e) {
+            logFormatter.logError(logger, "rebuild",
+                    "Couldn't load the yard index on startup", null, e);
+        }
+    }
+
+    /** Returns the yards of a warehouse ordered by assignation number.
+     *
+     * @param warehouse The warehouse that contains the yards.
+     * @return The unmodifiable list of yards, never null.
+     */
+    public List<Yard> getByWarehouse(String warehouse) {
+        return snapshot(warehouse).ordered;
+    }
+
+    /** Returns the yards of a warehouse with the given assigned color.
+     *
+     * @param warehouse The warehouse that contains the yards.
+     * @param color     The assigned color of the yards.
+     * @return The unmodifiable list of yards ordered by assignation number,
+     * never null.
+     */
+    public List<Yard> getByColor(String warehouse, String color) {
+        return snapshot(warehouse).byColor
+                .getOrDefault(color, Collections.emptyList());
+    }
+
+    /** Returns the yard of a warehouse with the given color and assignation
+     * number.
+     *
+     * @param warehouse         The warehouse that contains the yard.
+     * @param color             The assigned color of the yard.
+     * @param assignationNumber The assignation number of the yard.
+     * @return The yard, or null if it does not exists.
+     */
+    public Yard getByAssignationNumber(String warehouse, String color,
+                                       int assignationNumber) {
+        Map<Integer, Yard> byNumber =
+                snapshot(warehouse).byAssignation.get(color);
+        return byNumber == null ? null : byNumber.get(assignationNumber);
+    }
+
+    /** Returns the yard of the given id in the given warehouse.
+     *
+     * @param id        The id of the yard.
+     * @param warehouse The warehouse that contains the yard.
+     * @return The yard, or null if it does not exists in the warehouse.
+     */
+    public Yard get(int id, String warehouse) {
+        return snapshot(warehouse).byId.get(id);
+    }
+
+    /** Returns the yard of the given id, if the id is not indexed yet it's
+     * searched in the repository and its warehouse is reloaded.
+     * <p> The found yard is not a write, the version of its warehouse only
+     * changes if the reloaded yards are not the indexed ones.
+     *
+     * @param id The id of the yard.
+     * @return The yard, or null if it does not exists.
+     */
+    public Yard get(int id) {
+        String warehouse = warehouseById.get(id);
+        Yard yard = warehouse == null ? null : get(id, warehouse);
+        if (yard != null) {
+            return yard;
+        }
+        Yard stored = repository.get(id);
+        if (stored == null) {
+            return null;
+        }
+        Yard loaded = load(key(stored.getWarehouse()), stored.getWarehouse())
+                .byId.get(id);
+        return loaded == null ? stored : loaded;
+    }
+
+    /** Returns all the indexed yards, reloading all of them from the
+     * repository when they are older than the max age.
+     *
+     * @return The list of yards, never null.
+     */
+    public List<Yard> getAll() {
+        List<Yard> loaded = refreshAll();
+        if (loaded != null) {
+            return loaded;
+        }
+        List<Yard> yards = new ArrayList<>();
+        warehouses.values().forEach(snapshot -> yards.addAll(snapshot.ordered));
+        return yards;
+    }
+
+    /** Returns the version of the yards of a warehouse after reloading
+     * them if they are missing or older than the max age, so the version
+     * is as new as the yards served by {@link #getByWarehouse(String)}.
+     *
+     * @param warehouse The warehouse of the yards.
+     * @return The version of the warehouse.
+     */
+    public long currentVersion(String warehouse) {
+        snapshot(warehouse);
+        return version(warehouse);
+    }
+
+    /** Returns the version of all the yards after reloading them if they
+     * are older than the max age, so the version is as new as the yards
+     * served by {@link #getAll()}.
+     *
+     * @return The version of all the warehouses.
+     */
+    public long currentVersion() {
+        refreshAll();
+        return version.get();
+    }
+
+    /** Returns the version of the yards of a warehouse, the version changes
+     * each time a yard of the warehouse is written or reloaded with
+     * changes.
+     * <p> To pair a version with the yards it must be read before them, so
+     * the yards are as new as the version or newer.
+     *
+     * @param warehouse The warehouse of the yards.
+     * @return The version, 0 if the warehouse was never changed.
+     */
+    public long version(String warehouse) {
+        AtomicLong version = versions.get(key(warehouse));
+        return version == null ? 0 : version.get();
+    }
+
+    /** Adds or replaces a yard in the index, must be called once the yard
+     * change is persisted.
+     * <p> The snapshot of the warehouse is copied with the yard inserted in
+     * its place of the order, linear in the yards of the warehouse.
+     *
+     * @param yard The persisted yard, if null nothing is done.
+     * @return The version of the warehouse of the yard after the change.
+     */
+    public synchronized long put(Yard yard) {
+        if (yard == null) {
+            return 0;
+        }
+        if (reloads > 0) {
+            journal.add(yard);
+        }
+        String key = key(yard.getWarehouse());
+        String previous = warehouseById.put(yard.getId(), key);
+        if (previous != null && !previous.equals(key)) {
+            warehouses.computeIfPresent(previous,
+                    (warehouse, snapshot) -> snapshot.without(yard.getId()));
+            increment(previous);
+        }
+        if (allLoadedAt != 0) {
+            warehouses.merge(key,
+                    new WarehouseYards(List.of(yard), allLoadedAt),
+                    (snapshot, ignored) -> snapshot.with(yard));
+        } else {
+            warehouses.computeIfPresent(key,
+                    (warehouse, snapshot) -> snapshot.with(yard));
+        }
+        return increment(key);
+    }
+
+    /** Increments the version of a warehouse.
+     *
+     * @param key The key of the warehouse in the index.
+     * @return The new version.
+     */
+    private long increment(String key) {
+        version.incrementAndGet();
+        return versions.computeIfAbsent(key, warehouse -> new AtomicLong())
+                .incrementAndGet();
+    }
+
+    /** Installs a reloaded snapshot, changing the version of the warehouse
+     * if the yards are not the same of the replaced snapshot.
+     *
+     * @param key      The key of the warehouse in the index.
+     * @param snapshot The reloaded snapshot.
+     */
+    private void install(String key, WarehouseYards snapshot) {
+        WarehouseYards previous = warehouses.put(key, snapshot);
+        if (previous == null || previous.fingerprint != snapshot.fingerprint) {
+            increment(key);
+        }
+    }
+
+    /** Obtains the snapshot of the given warehouse, loading it from the
+     * repository if it's missing or expired.
+     * <p> A missing warehouse is not searched while all the warehouses are
+     * loaded and not expired, they contain all the existing ones.
+     *
+     * @param warehouse The warehouse of the snapshot.
+     * @return The snapshot, never null.
+     */
+    private WarehouseYards snapshot(String warehouse) {
+        String key = key(warehouse);
+        WarehouseYards snapshot = warehouses.get(key);
+        if (snapshot == null) {
+            return isExpired(allLoadedAt)
+                    ? load(key, warehouse) : WarehouseYards.EMPTY;
+        }
+        if (isExpired(snapshot.loadedAt)
+                && snapshot.refreshing.compareAndSet(false, true)) {
+            try {
+                return load(key, warehouse);
+            } finally {
+                snapshot.refreshing.set(false);
+            }
+        }
+        return snapshot;
+    }
+
+    /** Loads the snapshot of a warehouse from the repository, the writes
+     * applied while loading it are applied again on the loaded yards.
+     * <p> If the warehouse is already being loaded the running load is
+     * awaited. A warehouse without yards is only kept if it was already
+     * indexed, so the unknown warehouses do not add entries.
+     *
+     * @param key       The key of the warehouse in the index.
+     * @param warehouse The warehouse to load.
+     * @return The loaded snapshot, never null.
+     */
+    private WarehouseYards load(String key, String warehouse) {
+        CompletableFuture<WarehouseYards> mine = new CompletableFuture<>();
+        CompletableFuture<WarehouseYards> running =
+                loading.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running);
+        }
+        long seen = startReload();
+        try {
+            List<Yard> yards = repository.getByWarehouse(warehouse);
+            WarehouseYards snapshot;
+            synchronized (this) {
+                Map<Integer, Yard> byId = byId(yards);
+                replay(byId, seen, key);
+                snapshot = new WarehouseYards(byId.values(),
+                        System.nanoTime());
+                if (!snapshot.ordered.isEmpty()
+                        || warehouses.containsKey(key)) {
+                    snapshot.ordered.forEach(
+                            yard -> warehouseById.put(yard.getId(), key));
+                    install(key, snapshot);
+                }
+            }
+            mine.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            finishReload();
+            loading.remove(key, mine);
+        }
+    }
+
+    /** Replaces all the snapshots with the given yards, after applying
+     * again the writes applied since they were loaded.
+     *
+     * @param yards The yards loaded from the repository.
+     * @param seen  The sequence of the journal before loading the yards.
+     * @return The yards installed in the index.
+     */
+    private synchronized List<Yard> replaceAll(List<Yard> yards, long seen) {
+        Map<Integer, Yard> byId = byId(yards);
+        replay(byId, seen, null);
+        long now = System.nanoTime();
+        Map<String, List<Yard>> byWarehouse = new HashMap<>();
+        for (Yard yard : byId.values()) {
+            byWarehouse.computeIfAbsent(key(yard.getWarehouse()),
+                    warehouse -> new ArrayList<>()).add(yard);
+        }
+        warehouses.keySet().stream()
+                .filter(key -> !byWarehouse.containsKey(key))
+                .forEach(key -> install(key,
+                        new WarehouseYards(List.of(), now)));
+        warehouseById.clear();
+        byWarehouse.forEach((key, warehouseYards) -> {
+            warehouseYards.forEach(
+                    yard -> warehouseById.put(yard.getId(), key));
+            install(key, new WarehouseYards(warehouseYards, now));
+        });
+        allLoadedAt = now;
+        return new ArrayList<>(byId.values());
+    }
+
+    /** Reloads all the yards from the repository when they are older than
+     * the max age.
+     * <p> If other thread is reloading them the current snapshots are
+     * served meanwhile, the running reload is only awaited if they were
+     * never loaded.
+     *
+     * @return The reloaded yards, or null if they were not reloaded.
+     */
+    private List<Yard> refreshAll() {
+        if (!isExpired(allLoadedAt)) {
+            return null;
+        }
+        CompletableFuture<List<Yard>> mine = new CompletableFuture<>();
+        if (!loadingAll.compareAndSet(null, mine)) {
+            CompletableFuture<List<Yard>> running = loadingAll.get();
+            return running == null || allLoadedAt != 0
+                    ? null : await(running);
+        }
+        long seen = startReload();
+        try {
+            List<Yard> yards = replaceAll(repository.getAll(), seen);
+            mine.complete(yards);
+            return yards;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            finishReload();
+            loadingAll.set(null);
+        }
+    }
+
+    /** Registers a running reload, so the writes are kept in the journal
+     * until it finishes.
+     *
+     * @return The sequence of the next write of the journal.
+     */
+    private synchronized long startReload() {
+        reloads++;
+        return journalStart + journal.size();
+    }
+
+    /** Unregisters a running reload, the journal is cleared when no reload
+     * is running.
+     */
+    private synchronized void finishReload() {
+        reloads--;
+        if (reloads == 0) {
+            journalStart += journal.size();
+            journal.clear();
+        }
+    }
+
+    /** Applies the writes of the journal since a sequence on some loaded
+     * yards, unless the loaded yard is of a newer version than the write.
+     * Must be called holding the lock of the index.
+     *
+     * @param byId The loaded yards by id, changed in place.
+     * @param seen The sequence of the journal before loading the yards.
+     * @param key  The key of the loaded warehouse, null if all the
+     *             warehouses were loaded.
+     */
+    private void replay(Map<Integer, Yard> byId, long seen, String key) {
+        for (int i = (int) (seen - journalStart); i < journal.size(); i++) {
+            Yard written = journal.get(i);
+            Yard loaded = byId.get(written.getId());
+            if (loaded != null && versionOf(loaded) > versionOf(written)) {
+                continue;
+            }
+            if (key == null || key.equals(key(written.getWarehouse()))) {
+                byId.put(written.getId(), written);
+            } else {
+                byId.remove(written.getId());
+            }
+        }
+    }
+
+    /** Indexes some yards by id.
+     *
+     * @param yards The yards.
+     * @return The modifiable map of the yards by id.
+     */
+    private static Map<Integer, Yard> byId(List<Yard> yards) {
+        Map<Integer, Yard> byId = new HashMap<>();
+        yards.forEach(yard -> byId.put(yard.getId(), yard));
+        return byId;
+    }
+
+    /** Obtains the version of a yard.
+     *
+     * @param yard The yard.
+     * @return The version, 0 if it has none.
+     */
+    private static int versionOf(Yard yard) {
+        return yard.getVersion() == null ? 0 : yard.getVersion();
+    }
+
+    /** Waits for a load run by other thread.
+     *
+     * @param load The running load.
+     * @param <T>  The type of the loaded value.
+     * @return The loaded value.
+     */
+    private static <T> T await(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /** Checks if a load done at the given time must be reloaded.
+     *
+     * @param loadedAt The {@link System#nanoTime()} of the load, 0 if never.
+     * @return True if the load is missing or older than the max age.
+     */
+    private boolean isExpired(long loadedAt) {
+        if (loadedAt == 0) {
+            return true;
+        }
+        return maxAgeNanos > 0 && System.nanoTime() - loadedAt > maxAgeNanos;
+    }
+
+    /** Obtains the key of a warehouse in the index.
+     *
+     * @param warehouse The warehouse, can be null.
+     * @return The key, never null.
+     */
+    private static String key(String warehouse) {
+        return Objects.toString(warehouse, "");
+    }
+
+    /** Immutable snapshot of the yards of a warehouse.
+     */
+    private static final class WarehouseYards {
+        /** The snapshot of a warehouse without yards. */
+        private static final WarehouseYards EMPTY =
+                new WarehouseYards(List.of(), 0);
+
+        /** The yards ordered by assignation number. */
+        private final List<Yard> ordered;
+
+        /** The yards by id. */
+        private final Map<Integer, Yard> byId;
+
+        /** The yards by assigned color ordered by assignation number. */
+        private final Map<String, List<Yard>> byColor;
+
+        /** The yards by assigned color and assignation number. */
+        private final Map<String, Map<Integer, Yard>> byAssignation;
+
+        /** The {@link System#nanoTime()} when the yards were loaded. */
+        private final long loadedAt;
+
+        /** Hash of the content of the yards, to detect changes. */
+        private final long fingerprint;
+
+        /** True while a thread is reloading this warehouse. */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /** Constructor.
+         *
+         * @param yards    The yards of the warehouse, cannot be null.
+         * @param loadedAt The time when the yards were loaded.
+         */
+        private WarehouseYards(Collection<Yard> yards, long loadedAt) {
+            this(loadedAt, sorted(yards));
+        }
+
+        /** Constructor of the already ordered yards.
+         *
+         * @param loadedAt The time when the yards were loaded.
+         * @param sorted   The yards of the warehouse ordered by assignation
+         *                 number, owned by the snapshot.
+         */
+        private WarehouseYards(long loadedAt, List<Yard> sorted) {
+            Map<Integer, Yard> ids = new HashMap<>();
+            Map<String, List<Yard>> colors = new HashMap<>();
+            Map<String, Map<Integer, Yard>> numbers = new HashMap<>();
+            long hash = 1;
+            for (Yard yard : sorted) {
+                hash = 31 * hash + Objects.hash(yard.getId(),
+                        yard.getAssignedColor(), yard.getAssignationNumber(),
+                        yard.getOccupied(), yard.getVehicleType(),
+                        yard.getWarehouse(), yard.getVersion());
+                String color = Objects.toString(yard.getAssignedColor(), "");
+                ids.put(yard.getId(), yard);
+                colors.computeIfAbsent(color, c -> new ArrayList<>())
+                        .add(yard);
+                numbers.computeIfAbsent(color, c -> new HashMap<>())
+                        .put(yard.getAssignationNumber(), yard);
+            }
+            colors.replaceAll((color, list) ->
+                    Collections.unmodifiableList(list));
+            this.ordered = Collections.unmodifiableList(sorted);
+            this.byId = ids;
+            this.byColor = colors;
+            this.byAssignation = numbers;
+            this.loadedAt = loadedAt;
+            this.fingerprint = hash;
+        }
+
+        /** Sorts some yards by assignation number.
+         *
+         * @param yards The yards.
+         * @return The modifiable sorted list.
+         */
+        private static List<Yard> sorted(Collection<Yard> yards) {
+            List<Yard> sorted = new ArrayList<>(yards);
+            sorted.sort(ASSIGNATION_ORDER);
+            return sorted;
+        }
+
+        /** Creates a copy of this snapshot with the given yard, inserted in
+         * its place of the order without sorting again.
+         *
+         * @param yard The yard to add or replace.
+         * @return The new snapshot.
+         */
+        private WarehouseYards with(Yard yard) {
+            List<Yard> yards = copyWithout(yard.getId());
+            int place = Collections.binarySearch(yards, yard,
+                    ASSIGNATION_ORDER);
+            yards.add(place < 0 ? -place - 1 : place, yard);
+            return new WarehouseYards(loadedAt, yards);
+        }
+
+        /** Creates a copy of this snapshot without the given yard.
+         *
+         * @param id The id of the yard to remove.
+         * @return The new snapshot.
+         */
+        private WarehouseYards without(int id) {
+            return new WarehouseYards(loadedAt, copyWithout(id));
+        }
+
+        /** Copies the ordered yards without the given yard.
+         *
+         * @param id The id of the yard to remove.
+         * @return The modifiable ordered copy.
+         */
+        private List<Yard> copyWithout(int id) {
+            List<Yard> yards = new ArrayList<>(ordered);
+            Yard current = byId.get(id);
+            if (current != null) {
+                yards.remove(Collections.binarySearch(yards, current,
+                        ASSIGNATION_ORDER));
+            }
+            return yards;
+        }
+    }
+}
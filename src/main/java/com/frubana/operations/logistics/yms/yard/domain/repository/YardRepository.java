@@ -1,9 +1,12 @@
 package com.frubana.operations.logistics.yms.yard.domain.repository;
 
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyEvent;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyOperation;
 import com.frubana.operations.logistics.yms.yard.domain.Yard;
 import org.jdbi.v3.core.Handle;
 import org.jdbi.v3.core.Jdbi;
 import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.PreparedBatch;
 import org.jdbi.v3.core.statement.Query;
 import org.jdbi.v3.core.statement.StatementContext;
 import org.jdbi.v3.core.statement.Update;
@@ -12,9 +15,21 @@ import org.springframework.stereotype.Component;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /** Some repository using JDBI
+ * <p> The writes use the primary database and the reads use the database
+ * selected by the {@link ReadRouter}.
  */
 @Component
 public class YardRepository {
@@ -24,87 +39,143 @@ public class YardRepository {
      */
     public static final String SELECT_YARD_SQL_QUERY = "Select * from YARD ";
 
+    /**
+     * Number of rows read at a time when streaming the yards.
+     */
+    private static final int STREAM_PAGE_SIZE = 500;
+
     /**
      * The JDBI instance to request data to the database, it's never null.
      */
     private final Jdbi dbi;
 
+    /**
+     * The router of the read only queries, it's never null.
+     */
+    private final ReadRouter router;
+
+    /**
+     * The allocator of the assignation numbers, it's never null.
+     */
+    private final AssignationNumberAllocator allocator;
+
+    /**
+     * The log of the occupancy changes, it's never null.
+     */
+    private final OccupancyEventRepository events;
+
     /**
      * Base constructor of the repository.
      *
-     * @param jdbi the JDBI instance to use in the queries.
+     * @param jdbi      the JDBI instance to use in the writes.
+     * @param router    the router to select the JDBI instance of the reads.
+     * @param allocator the allocator of the assignation numbers.
+     * @param events    the log of the occupancy changes, written in the
+     *                  transaction of each change.
      */
     @Autowired
-    public YardRepository(Jdbi jdbi) {
+    public YardRepository(Jdbi jdbi, ReadRouter router,
+                          AssignationNumberAllocator allocator,
+                          OccupancyEventRepository events) {
         this.dbi = jdbi;
+        this.router = router;
+        this.allocator = allocator;
+        this.events = events;
     }
 
     /**
-     * register a yard for a specific warehouses.
+     * register a yard for a specific warehouses, the assignation number is
+     * allocated in the same transaction of the insert.
      *
      * @param yard      the yard to be register.
      * @param warehouse the warehouse to be registered.
      * @return the {@link Yard}  registered.
      */
     public Yard register(Yard yard, String warehouse) {
-        int nextAssignation = this.getNextAssignationNumber(yard.getColor(),
-                warehouse);
-        String sql_query = "Insert into yard (color, warehouse)" +
-                " values(:color, :warehouse)";
-        try (Handle handler = dbi.open();
-             Update query_string = handler.createUpdate(sql_query)) {
-            query_string
-                    .bind("color", yard.getColor())
-                    .bind("warehouse", warehouse);
-            int yard_id = query_string
-                    .executeAndReturnGeneratedKeys("id")
-                    .mapTo(int.class).first();
-            handler.close();
-            Yard createdYard = new Yard(yard_id,yard.getColor(),
-                    nextAssignation,false);
-            createdYard.assignWarehouse(warehouse);
-            return createdYard ;
-
-        }
+        String sql_query = "Insert into yard" +
+                " (color, warehouse, assignation_number, occupied)" +
+                " values(:color, :warehouse, :assignation_number, false)";
+        String color = yard.getAssignedColor();
+        Yard created = dbi.inTransaction(handler -> {
+            int nextAssignation =
+                    allocator.next(handler, warehouse, color);
+            try (Update query_string = handler.createUpdate(sql_query)) {
+                query_string
+                        .bind("color", color)
+                        .bind("warehouse", warehouse)
+                        .bind("assignation_number", nextAssignation);
+                int yard_id = query_string
+                        .executeAndReturnGeneratedKeys("id")
+                        .mapTo(int.class).first();
+                Yard createdYard = new Yard(yard_id, color,
+                        nextAssignation, false);
+                createdYard.assignWarehouse(warehouse);
+                return createdYard;
+            }
+        });
+        router.markWrite(warehouse);
+        return created;
     }
 
+
     /**
-     * Obtiene el siguiente numero de la assignacion ejemplo
-     * si para el muelle #ff0000 de la bodega ALQ existen el 1,2,3,4,5 en base de datos
-     * debe retornar el 6.
-     * OJO:
-     * si para el muelle #0000ff de la bodega ARM existen el 1,3,4,5 en base de datos
-     * debe retornar el 2.
+     * register several yards for a specific warehouse in one transaction,
+     * the assignation numbers of all the yards are allocated in one pass and
+     * the yards are inserted in one batch.
      *
-     * @param color
-     * @param warehouse
-     * @return
+     * @param yards     the yards to be registered, in the order to assign
+     *                  the numbers of each color.
+     * @param warehouse the warehouse to be registered.
+     * @return the {@link Yard}s registered, in the same order.
+     * @throws IllegalArgumentException if some yard has no color.
      */
-    private int getNextAssignationNumber(String color, String warehouse){
-        String sql_query=   "SELECT * FROM yard " +
-                "WHERE color=:color and warehouse=:warehouse " +
-                "ORDER BY assignation_number ASC";
-
-        List<Yard> yards;
-        try (Handle handler = dbi.open();
-             Query query_string = handler.createQuery(sql_query)) {
-            query_string
-                    .bind("color",color)
-                    .bind("warehouse",warehouse);
-            yards = query_string.mapTo(Yard.class).list();
-            handler.close();
+    public List<Yard> registerAll(List<Yard> yards, String warehouse) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Yard yard : yards) {
+            String color = yard.getAssignedColor();
+            if (color == null || color.isBlank()) {
+                throw new IllegalArgumentException(
+                        "The color of the yards cannot be null or empty");
+            }
+            counts.merge(color, 1, Integer::sum);
         }
+        String sql_query = "Insert into yard" +
+                " (color, warehouse, assignation_number, occupied)" +
+                " values(:color, :warehouse, :assignation_number, false)";
+        List<Yard> created = dbi.inTransaction(handler -> {
+            Map<String, Iterator<Integer>> numbers = new HashMap<>();
+            allocator.next(handler, warehouse, counts).forEach(
+                    (color, free) -> numbers.put(color, free.iterator()));
+
+            List<Integer> assigned = new ArrayList<>(yards.size());
+            List<Integer> ids;
+            try (PreparedBatch batch = handler.prepareBatch(sql_query)) {
+                for (Yard yard : yards) {
+                    int number = numbers.get(yard.getAssignedColor()).next();
+                    batch.bind("color", yard.getAssignedColor())
+                            .bind("warehouse", warehouse)
+                            .bind("assignation_number", number)
+                            .add();
+                    assigned.add(number);
+                }
+                ids = batch.executeAndReturnGeneratedKeys("id")
+                        .mapTo(int.class).list();
+            }
 
-        for(int i = 0; i <yards.size(); ++i) {
-            Yard yard = yards.get(i);
-            if(i+1 != yard.getAssignationNumber()){
-                return i+1;
+            List<Yard> createdYards = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                Yard createdYard = new Yard(ids.get(i),
+                        yards.get(i).getAssignedColor(), assigned.get(i),
+                        false);
+                createdYard.assignWarehouse(warehouse);
+                createdYards.add(createdYard);
             }
-        }
-        return yards.size()+1;
+            return createdYards;
+        });
+        router.markWrite(warehouse);
+        return created;
     }
 
-
     /**
      * Retrieve if an yard exists or not in the DB
      *
@@ -114,7 +185,7 @@ public class YardRepository {
     public boolean exist(int id) {
         String sql_query = "Select count(*) from YARD " +
                 "where id= :id ";
-        try (Handle handler = dbi.open();
+        try (Handle handler = router.forAny().open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("id", id);
@@ -135,7 +206,7 @@ public class YardRepository {
 
         String sql_query = SELECT_YARD_SQL_QUERY +
                 " where id= :id and warehouse=:warehouse";
-        try (Handle handler = dbi.open();
+        try (Handle handler = router.forWarehouse(warehouse).open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("id", id)
@@ -148,28 +219,49 @@ public class YardRepository {
 
         /**
      * Retrieve a {@link Yard} by its id and warehouse.
+     * <p> It can read from the replica, the write paths use
+     * {@link #getForWrite(int)}.
      *
      * @param id        the id for yard
-     * @return the Yard if exist.
+     * @return the Yard if exist, null otherwise.
      */
     public Yard get(int id) {
         String sql_query = SELECT_YARD_SQL_QUERY +
                 " where id= :id ";
-        try (Handle handler = dbi.open();
+        try (Handle handler = router.forAny().open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("id", id);
-            Yard yard = query_string.mapTo(Yard.class).first();
+            Yard yard = query_string.mapTo(Yard.class).findFirst()
+                    .orElse(null);
             handler.close();
             return yard;
         }
     }
 
+    /**
+     * Retrieve a {@link Yard} by its id from the primary database, for the
+     * reads of the write paths, they cannot use a stale copy of the
+     * replica. It joins the current transaction, if any, and locks the row
+     * until it ends, so the yard does not change before it's written.
+     *
+     * @param id the id for yard
+     * @return the Yard, empty if it does not exist.
+     */
+    public Optional<Yard> getForWrite(int id) {
+        String sqlQuery = SELECT_YARD_SQL_QUERY + " where id = :id" +
+                " FOR UPDATE";
+        try (Handle handler = dbi.open();
+             Query query = handler.createQuery(sqlQuery)) {
+            return query.bind("id", id).mapTo(Yard.class).findFirst();
+        }
+    }
+
     public List<Yard> getByWarehouse(String warehouse) {
 
         String sql_query = SELECT_YARD_SQL_QUERY +
                 " where warehouse=:warehouse order by assignation_number";
-        try (Handle handler = dbi.open();
+        try (Handle handler = router.forWarehouse(warehouse).open();
              Query query_string = handler.createQuery(sql_query)) {
             query_string
                     .bind("warehouse", warehouse);
@@ -182,7 +274,7 @@ public class YardRepository {
     public List<Yard> getAll() {
 
         String sqlQuery = SELECT_YARD_SQL_QUERY;
-        try (Handle handler = dbi.open();
+        try (Handle handler = router.forAny().open();
              Query queryString = handler.createQuery(sqlQuery)) {
             List<Yard> yards = queryString.mapTo(Yard.class).list();
             handler.close();
@@ -190,62 +282,344 @@ public class YardRepository {
         }
     }
 
+    /**
+     * Retrieve a page of the yards of all the warehouses ordered by id.
+     *
+     * @param after the id after which the page starts, 0 for the first page.
+     * @param limit the max number of yards of the page.
+     * @return the yards with an id greater than the given one.
+     */
+    public List<Yard> getPage(int after, int limit) {
+        String sqlQuery = SELECT_YARD_SQL_QUERY +
+                " where id > :after order by id limit :limit";
+        try (Handle handler = router.forAny().open();
+             Query queryString = handler.createQuery(sqlQuery)) {
+            queryString
+                    .bind("after", after)
+                    .bind("limit", limit);
+            return queryString.mapTo(Yard.class).list();
+        }
+    }
 
-    public Yard liberarMuelle(Yard yard){
+    /**
+     * Streams the yards of all the warehouses ordered by warehouse and id,
+     * only a page of rows is kept in memory at a time.
+     * <p> Each page is read with its own connection, released before the
+     * action runs with its yards, so a slow action does not hold a
+     * connection. The pages are not a snapshot, a yard changed while the
+     * yards are streamed can be seen before or after the change. The yards
+     * without warehouse are ordered as the ones of an empty warehouse.
+     *
+     * @param action the action to run with each yard.
+     */
+    public void forEach(Consumer<Yard> action) {
+        String firstPage = SELECT_YARD_SQL_QUERY +
+                " order by coalesce(warehouse, ''), id limit :limit";
+        String nextPage = SELECT_YARD_SQL_QUERY +
+                " where (coalesce(warehouse, ''), id) > (:warehouse, :id)" +
+                " order by coalesce(warehouse, ''), id limit :limit";
+        Yard last = null;
+        List<Yard> yards;
+        do {
+            Yard after = last;
+            yards = router.forAny().withHandle(handler -> {
+                try (Query queryString = handler.createQuery(
+                        after == null ? firstPage : nextPage)) {
+                    queryString.bind("limit", STREAM_PAGE_SIZE);
+                    if (after != null) {
+                        queryString
+                                .bind("warehouse", Objects.toString(
+                                        after.getWarehouse(), ""))
+                                .bind("id", after.getId());
+                    }
+                    return queryString.mapTo(Yard.class).list();
+                }
+            });
+            yards.forEach(action);
+            if (!yards.isEmpty()) {
+                last = yards.get(yards.size() - 1);
+            }
+        } while (yards.size() == STREAM_PAGE_SIZE);
+    }
 
-       //  int nextAssignation = this.getNextAssignationNumber(yard.getColor(),
-         //   yard.getWarehouse());
-        //System.out.println("este es el siguiente numero asignado  "+nextAssignation);
 
+    /**
+     * Marks as free the yard with the assignation number, warehouse and color
+     * of the given yard.
+     *
+     * @param yard the yard with the assignation number, warehouse and color
+     *             to search.
+     * @return the freed {@link Yard}, empty if no yard matched.
+     */
+    public Optional<Yard> liberarMuelle(Yard yard) {
+        return setOccupied(yard, false);
+    }
 
-        String sql_query=" UPDATE yard SET " +
-                "occupied='false'"+
-                " WHERE assignation_number =:assignation_number"+
-                " and warehouse= :warehouse and color=:color;";
+    /**
+     * Marks as occupied the yard with the assignation number, warehouse and
+     * color of the given yard.
+     *
+     * @param yard the yard with the assignation number, warehouse and color
+     *             to search.
+     * @return the occupied {@link Yard}, empty if no yard matched.
+     */
+    public Optional<Yard> ocuparMuelle(Yard yard) {
+        return setOccupied(yard, true);
+    }
 
-        try(Handle handler=dbi.open();
-            Update query_string = handler.createUpdate(sql_query)){
-            query_string.bind("assignation_number",yard.getAssignationNumber())
-                        .bind("warehouse",yard.getWarehouse())
-                        .bind("color",yard.getColor());
-            query_string.execute();
-            handler.close();
+    /**
+     * Marks as occupied a free dock of a warehouse for a vehicle type, only
+     * if it's still free.
+     *
+     * @param id          the id of the dock.
+     * @param warehouse   the warehouse of the dock.
+     * @param vehicleType the vehicle type of the dock.
+     * @return the occupied {@link Yard}, empty if the dock is not free or
+     * does not match.
+     */
+    public Optional<Yard> occupyIfFree(int id, String warehouse,
+                                       int vehicleType) {
+        String sqlQuery = "UPDATE yard SET occupied = true," +
+                " version = version + 1" +
+                " WHERE id = :id and warehouse = :warehouse" +
+                " and vehicle_type = :vehicle_type" +
+                " and occupied IS NOT TRUE RETURNING *";
+        Instant now = Instant.now();
+        events.ensurePartition(now);
+
+        Optional<Yard> occupied = dbi.inTransaction(handler -> {
+            try (Query query = handler.createQuery(sqlQuery)) {
+                query.bind("id", id)
+                        .bind("warehouse", warehouse)
+                        .bind("vehicle_type", vehicleType);
+                return logged(handler,
+                        query.mapTo(Yard.class).findFirst(), true, now);
+            }
+        });
+        router.markWrite(warehouse);
+        return occupied;
+    }
+
+    /**
+     * Marks as occupied the best free dock of a warehouse for a vehicle
+     * type in one statement, the docks locked by concurrent assignments are
+     * skipped.
+     * <p> The docks of the preferred colors go first in the order of the
+     * colors, then the rest, each by assignation number.
+     *
+     * @param warehouse   the warehouse of the dock.
+     * @param vehicleType the vehicle type of the dock.
+     * @param colors      the preferred colors in order, can be empty.
+     * @return the occupied {@link Yard}, empty if there is no free dock.
+     */
+    public Optional<Yard> occupyFirstFree(String warehouse, int vehicleType,
+                                          List<String> colors) {
+        StringBuilder preference = new StringBuilder();
+        for (int i = 0; i < colors.size(); i++) {
+            preference.append(i == 0 ? "CASE color" : "")
+                    .append(" WHEN :color").append(i)
+                    .append(" THEN ").append(i);
         }
+        if (preference.length() > 0) {
+            preference.append(" ELSE ").append(colors.size()).append(" END, ");
+        }
+        String sqlQuery = "UPDATE yard SET occupied = true," +
+                " version = version + 1" +
+                " WHERE id = (SELECT id FROM yard" +
+                "   WHERE warehouse = :warehouse" +
+                "   and vehicle_type = :vehicle_type" +
+                "   and occupied IS NOT TRUE" +
+                "   ORDER BY " + preference + "assignation_number, id" +
+                "   LIMIT 1 FOR UPDATE SKIP LOCKED)" +
+                " and occupied IS NOT TRUE RETURNING *";
+        Instant now = Instant.now();
+        events.ensurePartition(now);
+
+        Optional<Yard> occupied = dbi.inTransaction(handler -> {
+            try (Query query = handler.createQuery(sqlQuery)) {
+                query.bind("warehouse", warehouse)
+                        .bind("vehicle_type", vehicleType);
+                for (int i = 0; i < colors.size(); i++) {
+                    query.bind("color" + i, colors.get(i));
+                }
+                return logged(handler,
+                        query.mapTo(Yard.class).findFirst(), true, now);
+            }
+        });
+        router.markWrite(warehouse);
+        return occupied;
+    }
 
+    /**
+     * Applies several changes of the occupied flag in one transaction using
+     * a batch of updates, and reads the resulting state of the yards once.
+     * The applied changes are logged in one batch in the same transaction.
+     *
+     * @param operations the valid operations to apply, in order.
+     * @return the state of each yard after the whole batch, in the same order
+     * of the operations, empty if no yard matched the operation.
+     */
+    public List<Optional<Yard>> setOccupied(
+            List<OccupancyOperation> operations) {
+        String sqlUpdate = "UPDATE yard SET occupied = :occupied," +
+                " version = version + 1" +
+                " WHERE assignation_number = :assignation_number" +
+                " and warehouse = :warehouse and color = :color";
+        String sqlQuery = SELECT_YARD_SQL_QUERY +
+                " WHERE warehouse in (<warehouses>)" +
+                " and color in (<colors>)" +
+                " and assignation_number in (<assignation_numbers>)";
+        Instant now = Instant.now();
+        events.ensurePartition(now);
+
+        List<Optional<Yard>> yards = dbi.inTransaction(handler -> {
+            int[] rows;
+            try (PreparedBatch batch = handler.prepareBatch(sqlUpdate)) {
+                for (OccupancyOperation operation : operations) {
+                    Yard yard = operation.getYard();
+                    batch.bind("occupied", operation.isOccupy())
+                            .bind("assignation_number",
+                                    yard.getAssignationNumber())
+                            .bind("warehouse", yard.getWarehouse())
+                            .bind("color", yard.getAssignedColor())
+                            .add();
+                }
+                rows = batch.execute();
+            }
 
-        String sql_queryGetYard= SELECT_YARD_SQL_QUERY +
-                " WHERE assignation_number =:assignation_number"+
-                " and warehouse= :warehouse and color=:color;";
+            Set<String> warehouses = new HashSet<>();
+            Set<String> colors = new HashSet<>();
+            Set<Integer> numbers = new HashSet<>();
+            for (OccupancyOperation operation : operations) {
+                warehouses.add(operation.getYard().getWarehouse());
+                colors.add(operation.getYard().getAssignedColor());
+                numbers.add(operation.getYard().getAssignationNumber());
+            }
+            Map<String, Yard> states = new HashMap<>();
+            try (Query query = handler.createQuery(sqlQuery)) {
+                query.bindList("warehouses", new ArrayList<>(warehouses))
+                        .bindList("colors", new ArrayList<>(colors))
+                        .bindList("assignation_numbers",
+                                new ArrayList<>(numbers))
+                        .mapTo(Yard.class)
+                        .forEach(yard -> states.put(occupancyKey(yard), yard));
+            }
 
-        try(Handle handler=dbi.open();
-            Query query_string = handler.createQuery(sql_queryGetYard)){
-            query_string.bind("assignation_number",yard.getAssignationNumber())
-                        .bind("warehouse",yard.getWarehouse())
-                        .bind("color",yard.getColor());
-            Yard yards = query_string.mapTo(Yard.class).first();
-            return yards;
-        }
+            List<Optional<Yard>> results = new ArrayList<>(rows.length);
+            List<OccupancyEvent> changes = new ArrayList<>(rows.length);
+            for (int i = 0; i < rows.length; i++) {
+                Optional<Yard> result = rows[i] > 0
+                        ? Optional.ofNullable(states.get(
+                                occupancyKey(operations.get(i).getYard())))
+                        : Optional.empty();
+                boolean occupy = operations.get(i).isOccupy();
+                result.ifPresent(yard ->
+                        changes.add(OccupancyEvent.of(yard, occupy, now)));
+                results.add(result);
+            }
+            events.insert(handler, changes);
+            return results;
+        });
+        operations.forEach(operation ->
+                router.markWrite(operation.getYard().getWarehouse()));
+        return yards;
+    }
+
+    /**
+     * Obtains the key used to search a yard in the occupancy changes.
+     *
+     * @param yard the yard.
+     * @return the key with the warehouse, assigned color and assignation
+     * number.
+     */
+    private static String occupancyKey(Yard yard) {
+        return yard.getWarehouse() + "|" + yard.getAssignedColor() + "|" +
+                yard.getAssignationNumber();
+    }
+
+    /**
+     * Logs the change of the occupied flag of a yard, if there was one.
+     *
+     * @param handler  the handle of the transaction of the change.
+     * @param yard     the changed yard, empty if nothing changed.
+     * @param occupied the value of the occupied flag set by the change.
+     * @param now      the moment of the change.
+     * @return the given yard.
+     */
+    private Optional<Yard> logged(Handle handler, Optional<Yard> yard,
+                                  boolean occupied, Instant now) {
+        yard.ifPresent(changed -> events.insert(handler,
+                List.of(OccupancyEvent.of(changed, occupied, now))));
+        return yard;
+    }
+
+    /**
+     * Changes the occupied flag of a yard and returns the resulting row in
+     * the same statement, the change is logged in the same transaction.
+     *
+     * @param yard     the yard with the assignation number, warehouse and
+     *                 color to search.
+     * @param occupied the new value of the occupied flag.
+     * @return the updated {@link Yard}, empty if no yard matched.
+     */
+    private Optional<Yard> setOccupied(Yard yard, boolean occupied) {
+        String sqlQuery = "UPDATE yard SET occupied = :occupied," +
+                " version = version + 1" +
+                " WHERE assignation_number = :assignation_number" +
+                " and warehouse = :warehouse and color = :color" +
+                " RETURNING *";
+        Instant now = Instant.now();
+        events.ensurePartition(now);
+
+        Optional<Yard> updated = dbi.inTransaction(handler -> {
+            try (Query query = handler.createQuery(sqlQuery)) {
+                query.bind("occupied", occupied)
+                        .bind("assignation_number",
+                                yard.getAssignationNumber())
+                        .bind("warehouse", yard.getWarehouse())
+                        .bind("color", yard.getAssignedColor());
+                return logged(handler,
+                        query.mapTo(Yard.class).findFirst(), occupied, now);
+            }
+        });
+        router.markWrite(yard.getWarehouse());
+        return updated;
     }
 
 
-    public Yard update(Yard updatedYard) {
+    /**
+     * Updates the color, warehouse, assignation number and vehicle type of
+     * a yard, only if the yard is still in the expected version, and
+     * increments the version.
+     *
+     * @param updatedYard     the yard with the new information.
+     * @param expectedVersion the version of the yard the change is based on.
+     * @return the updated {@link Yard}, empty if the yard is no longer in
+     * the expected version.
+     */
+    public Optional<Yard> update(Yard updatedYard, int expectedVersion) {
         String sqlQuery = "UPDATE yard SET color = :color," +
                 "warehouse = :warehouse," +
                 "assignation_number = :assignation_number," +
-                "vehicle_type = :vehicle_type" +
-                " WHERE id=:id";
+                "vehicle_type = :vehicle_type," +
+                "version = version + 1" +
+                " WHERE id=:id and version = :version" +
+                " RETURNING *";
 
+        Optional<Yard> updated;
         try (Handle handler = dbi.open();
-             Update update = handler.createUpdate(sqlQuery)) {
-            update.bind("color", updatedYard.getColor())
+             Query query = handler.createQuery(sqlQuery)) {
+            query.bind("color", updatedYard.getAssignedColor())
                     .bind("warehouse", updatedYard.getWarehouse())
                     .bind("assignation_number",
                             updatedYard.getAssignationNumber())
                     .bind("vehicle_type", updatedYard.getVehicleType())
-                    .bind("id",updatedYard.getId());
-            int numberOfRows = update.execute();
-            return updatedYard;
+                    .bind("id", updatedYard.getId())
+                    .bind("version", expectedVersion);
+            updated = query.mapTo(Yard.class).findFirst();
         }
+        router.markWrite(updatedYard.getWarehouse());
+        return updated;
     }
 
     /** Mapper of the {@link Yard} for the JDBI implementation.
@@ -274,36 +648,8 @@ public class YardRepository {
             );
             yard.assignWarehouse(rs.getString("warehouse"));
             yard.setVehicleType(rs.getInt("vehicle_type"));
+            yard.setVersion(rs.getInt("version"));
             return yard;
         }
     }
-    public Yard ocuparMuelle(Yard yard){
-
-        String sql_query=" UPDATE yard SET " +
-                "occupied='true'"+
-                " WHERE assignation_number =:assignation_number"+
-                " and warehouse= :warehouse and color=:color;";
-
-        try(Handle handler=dbi.open();
-            Update query_string = handler.createUpdate(sql_query)){
-            query_string.bind("assignation_number",yard.getAssignationNumber())
-                        .bind("warehouse",yard.getWarehouse())
-                        .bind("color",yard.getColor());
-            query_string.execute();
-            handler.close();
-        }
-
-        String sql_queryGetYard= SELECT_YARD_SQL_QUERY +
-                " WHERE assignation_number =:assignation_number"+
-                " and warehouse= :warehouse and color=:color;";
-
-        try(Handle handler=dbi.open();
-            Query query_string = handler.createQuery(sql_queryGetYard)){
-            query_string.bind("assignation_number",yard.getAssignationNumber())
-                        .bind("warehouse",yard.getWarehouse())
-                        .bind("color",yard.getColor());
-            Yard  yards = query_string.mapTo(Yard.class).first();
-            return yards;
-        }
-    }
 }
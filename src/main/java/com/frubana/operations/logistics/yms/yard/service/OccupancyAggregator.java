@@ -0,0 +1,129 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.DockOccupancy;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyEvent;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Computes the occupancy of the docks over a time range from their
+ * occupancy events, one dock at a time.
+ * <p> The events must come ordered by dock and moment, each dock can start
+ * with its last event before the range to know if it was occupied when the
+ * range started. Only the intervals of the current dock are kept in memory,
+ * its {@link DockOccupancy} is emitted when the events of the next dock
+ * start, and the last one when {@link #finish()} is called.
+ * <p> An event that repeats the state of the dock is ignored, and an
+ * interval still open at the end is closed at the end of the range.
+ */
+class OccupancyAggregator implements Consumer<OccupancyEvent> {
+
+    /** The start of the range. */
+    private final Instant from;
+
+    /** The end of the range, the moments after it are not counted. */
+    private final Instant end;
+
+    /** The action that receives the occupancy of each dock. */
+    private final Consumer<DockOccupancy> action;
+
+    /** The last event of the current dock, null before the first event. */
+    private OccupancyEvent last;
+
+    /** The moment the current dock was occupied, null if it's free. */
+    private Instant occupiedSince;
+
+    /** The closed intervals of the current dock. */
+    private List<DockOccupancy.Interval> intervals = new ArrayList<>();
+
+    /** The occupied time of the closed intervals of the current dock. */
+    private Duration occupied = Duration.ZERO;
+
+    /** Creates an aggregator of a range.
+     *
+     * @param from   The start of the range.
+     * @param end    The end of the range, the moment to close the open
+     *               intervals, not before the start.
+     * @param action The action that receives the occupancy of each dock.
+     */
+    OccupancyAggregator(Instant from, Instant end,
+                        Consumer<DockOccupancy> action) {
+        this.from = from;
+        this.end = end;
+        this.action = action;
+    }
+
+    /** Applies the next event.
+     *
+     * @param event The event, ordered by dock and moment.
+     */
+    @Override
+    public void accept(OccupancyEvent event) {
+        if (last != null && last.getYardId() != event.getYardId()) {
+            emit();
+        }
+        Instant moment = clamp(event.getOccurredAt());
+        if (event.isOccupied() && occupiedSince == null) {
+            occupiedSince = moment;
+        } else if (!event.isOccupied() && occupiedSince != null) {
+            close(moment);
+        }
+        last = event;
+    }
+
+    /** Emits the occupancy of the last dock, must be called after the last
+     * event.
+     */
+    void finish() {
+        if (last != null) {
+            emit();
+        }
+    }
+
+    /** Emits the occupancy of the current dock and resets the state for the
+     * next one.
+     */
+    private void emit() {
+        if (occupiedSince != null) {
+            close(end);
+        }
+        Duration range = Duration.between(from, end);
+        double utilization = range.isZero() ? 0
+                : (double) occupied.toMillis() / range.toMillis();
+        action.accept(new DockOccupancy(last.getYardId(), last.getColor(),
+                last.getAssignationNumber(), intervals,
+                occupied.getSeconds(), utilization));
+        intervals = new ArrayList<>();
+        occupied = Duration.ZERO;
+        last = null;
+    }
+
+    /** Closes the open interval of the current dock, the empty intervals
+     * are discarded.
+     *
+     * @param moment The moment the dock was freed, inside the range.
+     */
+    private void close(Instant moment) {
+        if (moment.isAfter(occupiedSince)) {
+            intervals.add(new DockOccupancy.Interval(occupiedSince, moment));
+            occupied = occupied.plus(Duration.between(occupiedSince, moment));
+        }
+        occupiedSince = null;
+    }
+
+    /** Moves a moment inside the range.
+     *
+     * @param moment The moment.
+     * @return The moment, the start of the range if it's before it, or the
+     * end if it's after it.
+     */
+    private Instant clamp(Instant moment) {
+        if (moment.isBefore(from)) {
+            return from;
+        }
+        return moment.isAfter(end) ? end : moment;
+    }
+}
@@ -0,0 +1,75 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Limits the retries to a fraction of the calls.
+ * <p> Each call deposits the ratio of a token and each retry withdraws a
+ * whole token, so with a ratio of 0.1 there is at most one retry each ten
+ * calls once the initial tokens are spent. The tokens are capped, so a
+ * long healthy period does not allow a retry storm later.
+ */
+public class RetryBudget {
+
+    /** The thousandths of token of a whole token. */
+    private static final long TOKEN = 1000;
+
+    /** Thousandths of token deposited by each call. */
+    private final long deposit;
+
+    /** Max thousandths of token kept. */
+    private final long capacity;
+
+    /** The available thousandths of token. */
+    private final AtomicLong balance;
+
+    /** Constructor, the budget starts full.
+     *
+     * @param ratio     Retries allowed per call, between 0 and 1.
+     * @param maxTokens Max retries that can be done in a burst.
+     * @throws IllegalArgumentException if the ratio or the tokens are not
+     * valid.
+     */
+    public RetryBudget(double ratio, int maxTokens) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException(
+                    "The retry ratio must be between 0 and 1");
+        }
+        if (maxTokens < 1) {
+            throw new IllegalArgumentException(
+                    "The retry budget must allow at least one retry");
+        }
+        this.deposit = Math.round(ratio * TOKEN);
+        this.capacity = maxTokens * TOKEN;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    /** Registers a call, adding its part of token.
+     */
+    public void onCall() {
+        balance.accumulateAndGet(deposit,
+                (current, added) -> Math.min(capacity, current + added));
+    }
+
+    /** Takes a token to do a retry.
+     *
+     * @return True if the retry can be done, false if the budget is spent.
+     */
+    public boolean tryRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    /** Gets the retries that can be done right now.
+     *
+     * @return The available tokens.
+     */
+    public double available() {
+        return balance.get() / (double) TOKEN;
+    }
+}
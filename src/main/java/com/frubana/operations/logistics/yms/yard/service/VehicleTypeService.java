@@ -1,12 +1,13 @@
 package com.frubana.operations.logistics.yms.yard.service;
 
 
+import com.frubana.operations.logistics.yms.yard.domain.repository.VehicleTypeCatalog;
 import com.frubana.operations.logistics.yms.yard.domain.repository.VehicleTypeRepository;
+import com.frubana.operations.logistics.yms.yard.service.YardRetryPolicies.Operation;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 
@@ -20,38 +21,55 @@ public class VehicleTypeService {
     /** The repository to ask for data, it's never null. */
     private final VehicleTypeRepository repository;
 
+    /** The in-memory dictionary of the vehicle types, it's never null. */
+    private final VehicleTypeCatalog catalog;
+
+    /** The retry policies of the operations, it's never null. */
+    private final YardRetryPolicies retries;
+
+    /** The template of the transactions, each retry runs in a new one. */
+    private final TransactionTemplate transactions;
 
     /** Constructor.
      *
      * @param repository        Repository to persists or extract the needed
      *                          data of the tasks.
+     * @param catalog           In-memory dictionary of the vehicle types,
+     *                          updated after each registration.
+     * @param retries           Retry policies of the operations.
+     * @param transactions      Template of the transactions.
      */
     @Autowired
-    public VehicleTypeService(VehicleTypeRepository repository) {
+    public VehicleTypeService(VehicleTypeRepository repository,
+                              VehicleTypeCatalog catalog,
+                              YardRetryPolicies retries,
+                              TransactionTemplate transactions) {
         this.repository = repository;
+        this.catalog = catalog;
+        this.retries = retries;
+        this.transactions = transactions;
     }
 
 
 
     /**
-     * get a list of vehicle types.
+     * get a list of vehicle types, ordered by id.
      */
-    @Transactional
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public List<String> getAllVehicleTypes() {
-        return repository.getAll();
+        return retries.call(Operation.READ, catalog::getNames);
     }
 
     /**
      * Save a vehicle type in the repository
      * @param name the name of the vehicle type
      */
-    @Transactional
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public int registerVehicleType(String name) {
-        return this.repository.register(name);
+        int id = retries.call(Operation.WRITE, () -> transactions.execute(
+                status -> this.repository.register(name)));
+        catalog.put(id, name);
+        return id;
     }
 
 }
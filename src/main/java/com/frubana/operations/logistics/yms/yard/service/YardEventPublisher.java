@@ -0,0 +1,86 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.YardEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Publishes the changes of the yards of each warehouse to the connected
+ * boards.
+ * <p> A warehouse only has a channel while it has subscribers, the channel
+ * is removed when its last subscriber cancels.
+ */
+@Component
+public class YardEventPublisher {
+
+    /** The hot stream of events of each warehouse. */
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    /** Publishes an event to the subscribers of its warehouse, the events
+     * are only delivered to the current subscribers.
+     *
+     * @param event The event to publish, cannot be null.
+     */
+    public void publish(YardEvent event) {
+        Channel channel = channels.get(key(event.getWarehouse()));
+        if (channel != null) {
+            channel.sink.next(event);
+        }
+    }
+
+    /** Obtains the hot stream of the events of a warehouse.
+     *
+     * @param warehouse The warehouse of the events.
+     * @return The stream of events published from the subscription on.
+     */
+    public Flux<YardEvent> events(String warehouse) {
+        String key = key(warehouse);
+        return Flux.defer(() -> {
+            Channel channel = channels.compute(key, (k, current) -> {
+                Channel subscribed = current == null ? new Channel() : current;
+                subscribed.subscribers++;
+                return subscribed;
+            });
+            return channel.processor.doFinally(signal ->
+                    channels.computeIfPresent(key, (k, current) ->
+                            --current.subscribers == 0 ? null : current));
+        });
+    }
+
+    /** Obtains the number of warehouses with subscribers.
+     *
+     * @return The number of channels.
+     */
+    int channels() {
+        return channels.size();
+    }
+
+    /** Obtains the key of a warehouse.
+     *
+     * @param warehouse The warehouse, can be null.
+     * @return The key, never null.
+     */
+    private static String key(String warehouse) {
+        return Objects.toString(warehouse, "");
+    }
+
+    /** The processor of the events of a warehouse and its thread safe sink.
+     */
+    private static final class Channel {
+        /** The processor that multicasts the events. */
+        private final DirectProcessor<YardEvent> processor =
+                DirectProcessor.create();
+
+        /** The serialized sink to publish from any thread. */
+        private final FluxSink<YardEvent> sink = processor.sink();
+
+        /** Number of subscribers, only changed inside the compute of the
+         * map of channels. */
+        private int subscribers;
+    }
+}
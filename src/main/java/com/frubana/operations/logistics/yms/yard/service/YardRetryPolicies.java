@@ -0,0 +1,285 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jdbi.v3.core.ConnectionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/** The retry policies of the yard services by kind of operation.
+ * <p> The retries wait an exponential backoff with jitter and share a
+ * {@link RetryBudget}, so under a partial failure of the database the
+ * retries are a small fraction of the traffic instead of multiplying it.
+ * A token of the budget is only taken when the call has attempts left, so
+ * the last failed attempt does not spend one.
+ * The errors of the request, like the validations, are never retried.
+ * <p> The retries are registered in the {@link RetryRegistry}, so their
+ * calls are exported in the resilience4j metrics.
+ */
+@Component
+public class YardRetryPolicies {
+
+    /** The kinds of operation, each one with its own policy. */
+    public enum Operation {
+        /** Reads, retried on any error that is not of the request. */
+        READ("read", 3, 50),
+        /** Writes that can be applied twice with the same result, like
+         * occupying a yard, retried like the reads. */
+        IDEMPOTENT_WRITE("idempotentWrite", 3, 100),
+        /** Writes that cannot be applied twice, like registering a yard,
+         * only retried when the database did not apply them. */
+        WRITE("write", 2, 100);
+
+        /** The name of the policy in the properties and the metrics. */
+        private final String name;
+
+        /** Default max number of attempts, including the first one. */
+        private final int maxAttempts;
+
+        /** Default milliseconds to wait before the first retry. */
+        private final long initialIntervalMs;
+
+        /** Constructor.
+         *
+         * @param name              The name of the policy.
+         * @param maxAttempts       Default max number of attempts.
+         * @param initialIntervalMs Default wait before the first retry.
+         */
+        Operation(String name, int maxAttempts, long initialIntervalMs) {
+            this.name = name;
+            this.maxAttempts = maxAttempts;
+            this.initialIntervalMs = initialIntervalMs;
+        }
+    }
+
+    /** Prefix of the properties of the policies. */
+    private static final String PREFIX = "yms.retry.";
+
+    /** Prefix of the names of the retries in the registry. */
+    private static final String RETRY_PREFIX = "yardService.";
+
+    /** The errors that are never retried, they are caused by the request
+     * or the retries are already rejected. */
+    private static final String[] NON_RETRYABLE = {
+            IllegalArgumentException.class.getName(),
+            IllegalStateException.class.getName(),
+            UnsupportedOperationException.class.getName(),
+            NullPointerException.class.getName(),
+            "io.github.resilience4j.circuitbreaker.CallNotPermittedException",
+            "io.github.resilience4j.bulkhead.BulkheadFullException"
+    };
+
+    /** The classes of SQL state of the errors of the request: data
+     * exceptions, integrity violations and syntax errors. */
+    private static final String[] NON_RETRYABLE_SQL_STATES = {
+            "22", "23", "42"
+    };
+
+    /** The SQL states of a transaction rolled back by the database:
+     * serialization failure and deadlock. */
+    private static final String[] ROLLED_BACK_SQL_STATES = {
+            "40001", "40P01"
+    };
+
+    /** The retry of each kind of operation. */
+    private final Map<Operation, Retry> retries =
+            new EnumMap<>(Operation.class);
+
+    /** The budget shared by all the retries, it's never null. */
+    private final RetryBudget budget;
+
+    /** The errors that are never retried. */
+    private final List<Class<?>> nonRetryable = new ArrayList<>();
+
+    /** Number of retries not done because the budget was spent. */
+    private final Counter exhausted;
+
+    /** The number of attempts done by the call running in each thread, a
+     * call inside another one has its own count. */
+    private final ThreadLocal<int[]> attempts = new ThreadLocal<>();
+
+    /** Constructor.
+     *
+     * @param registry      The registry where the retries are published.
+     * @param env           The environment to read the properties of the
+     *                      policies.
+     * @param meterRegistry The registry of the metrics of the budget.
+     */
+    @Autowired
+    public YardRetryPolicies(RetryRegistry registry, Environment env,
+                             MeterRegistry meterRegistry) {
+        this.budget = new RetryBudget(
+                env.getProperty(PREFIX + "budget.ratio", Double.class, 0.1),
+                env.getProperty(PREFIX + "budget.max-tokens",
+                        Integer.class, 10));
+        for (String name : env.getProperty(PREFIX + "non-retryable",
+                String[].class, NON_RETRYABLE)) {
+            try {
+                nonRetryable.add(Class.forName(name.trim()));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException(
+                        "Unknown non retryable exception " + name, e);
+            }
+        }
+        for (Operation operation : Operation.values()) {
+            retries.put(operation, registry.retry(
+                    RETRY_PREFIX + operation.name, config(operation, env)));
+        }
+        this.exhausted = Counter.builder("yms.retry.budget.exhausted")
+                .description("Retries not done because the budget was spent")
+                .register(meterRegistry);
+        Gauge.builder("yms.retry.budget.available", budget,
+                RetryBudget::available)
+                .description("Retries that can be done right now")
+                .register(meterRegistry);
+    }
+
+    /** Calls a supplier retrying it with the policy of its kind of
+     * operation.
+     *
+     * @param operation The kind of operation, cannot be null.
+     * @param supplier  The operation to call, cannot be null.
+     * @param <T>       The type of the result of the operation.
+     * @return The result of the operation.
+     */
+    public <T> T call(Operation operation, Supplier<T> supplier) {
+        budget.onCall();
+        int[] outer = attempts.get();
+        int[] count = {0};
+        attempts.set(count);
+        try {
+            return Retry.decorateSupplier(retries.get(operation), () -> {
+                count[0]++;
+                return supplier.get();
+            }).get();
+        } finally {
+            if (outer == null) {
+                attempts.remove();
+            } else {
+                attempts.set(outer);
+            }
+        }
+    }
+
+    /** Creates the configuration of the retry of a kind of operation.
+     *
+     * @param operation The kind of operation.
+     * @param env       The environment to read the properties.
+     * @return The configuration.
+     */
+    private RetryConfig config(Operation operation, Environment env) {
+        String prefix = PREFIX + operation.name + ".";
+        IntervalFunction backoff = IntervalFunction.ofExponentialRandomBackoff(
+                env.getProperty(prefix + "initial-interval-ms", Long.class,
+                        operation.initialIntervalMs),
+                env.getProperty(prefix + "multiplier", Double.class, 2.0),
+                env.getProperty(prefix + "randomization-factor",
+                        Double.class, 0.5));
+        int maxAttempts = env.getProperty(prefix + "max-attempts",
+                Integer.class, operation.maxAttempts);
+        // The predicate runs before the retry checks the attempts left.
+        return RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(backoff)
+                .retryOnException(error -> isRetryable(operation, error)
+                        && withdraw(maxAttempts))
+                .build();
+    }
+
+    /** Takes a token of the budget to retry, only if the running call has
+     * attempts left.
+     *
+     * @param maxAttempts The max number of attempts of the call.
+     * @return True if the retry can be done.
+     */
+    private boolean withdraw(int maxAttempts) {
+        int[] count = attempts.get();
+        if (count != null && count[0] >= maxAttempts) {
+            return false;
+        }
+        if (budget.tryRetry()) {
+            return true;
+        }
+        exhausted.increment();
+        return false;
+    }
+
+    /** Checks if an error of an operation can be retried.
+     *
+     * @param operation The kind of the failed operation.
+     * @param error     The error of the operation.
+     * @return True if the operation can be retried.
+     */
+    boolean isRetryable(Operation operation, Throwable error) {
+        for (Throwable cause = error; cause != null;
+             cause = cause.getCause()) {
+            for (Class<?> type : nonRetryable) {
+                if (type.isInstance(cause)) {
+                    return false;
+                }
+            }
+            if (hasSqlState(cause, NON_RETRYABLE_SQL_STATES)) {
+                return false;
+            }
+        }
+        return operation != Operation.WRITE || isNotApplied(error);
+    }
+
+    /** Checks if an error guarantees that a write was not applied, because
+     * the connection was never obtained or the database rolled back the
+     * transaction.
+     *
+     * @param error The error of the write.
+     * @return True if the write can be retried safely.
+     */
+    private static boolean isNotApplied(Throwable error) {
+        for (Throwable cause = error; cause != null;
+             cause = cause.getCause()) {
+            if (cause instanceof CannotCreateTransactionException
+                    || cause instanceof ConnectionException
+                    || cause instanceof SQLTransientConnectionException
+                    || hasSqlState(cause, ROLLED_BACK_SQL_STATES)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Checks if an error is a SQL error with a state starting with one of
+     * the given prefixes.
+     *
+     * @param error    The error to check.
+     * @param prefixes The prefixes of the SQL states.
+     * @return True if the SQL state of the error matches.
+     */
+    private static boolean hasSqlState(Throwable error, String[] prefixes) {
+        if (!(error instanceof SQLException)) {
+            return false;
+        }
+        String state = ((SQLException) error).getSQLState();
+        if (state == null) {
+            return false;
+        }
+        for (String prefix : prefixes) {
+            if (state.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
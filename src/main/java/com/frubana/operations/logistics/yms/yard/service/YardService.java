@@ -1,15 +1,42 @@
 package com.frubana.operations.logistics.yms.yard.service;
 
 import com.frubana.operations.logistics.yms.health.service.HealthCheck;
+import com.frubana.operations.logistics.yms.yard.domain.DockOccupancy;
+import com.frubana.operations.logistics.yms.yard.domain.DockRequest;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyOperation;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyResult;
 import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardConflictException;
+import com.frubana.operations.logistics.yms.yard.domain.YardEvent;
+import com.frubana.operations.logistics.yms.yard.domain.YardPage;
+import com.frubana.operations.logistics.yms.yard.domain.repository.FreeDockIndex;
+import com.frubana.operations.logistics.yms.yard.domain.repository.OccupancyEventRepository;
+import com.frubana.operations.logistics.yms.yard.domain.repository.VehicleTypeCatalog;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardIndex;
 import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import com.frubana.operations.logistics.yms.yard.service.YardRetryPolicies.Operation;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /** Service of the some objects Logic.
  */
@@ -20,22 +47,131 @@ public class YardService implements HealthCheck {
      */
     public static final String SERVICE_NAME = "yms";
 
+    /**
+     * The bulkhead of the listings of yards, the slow reads of the boards.
+     */
+    public static final String LISTING_BULKHEAD = "yardListing";
+
+    /**
+     * The bulkhead of the streamed listings, they keep their place for the
+     * whole download so they don't take the places of the boards.
+     */
+    public static final String STREAM_BULKHEAD = "yardStream";
+
+    /**
+     * The bulkhead of the reads of a single yard.
+     */
+    public static final String READ_BULKHEAD = "yardRead";
+
+    /**
+     * The bulkhead of the occupancy writes, isolated from the reads so the
+     * docks can be assigned during a spike of reads.
+     */
+    public static final String OCCUPANCY_BULKHEAD = "yardOccupancy";
+
 
     /**
      * The repository to ask for data, it's never null.
      */
     private final YardRepository repository;
 
+    /**
+     * The in-memory index used to read the yards, it's never null.
+     */
+    private final YardIndex index;
+
+    /**
+     * The in-memory queues of the free docks, it's never null.
+     */
+    private final FreeDockIndex freeDocks;
+
+    /**
+     * The in-memory dictionary of the vehicle types, it's never null.
+     */
+    private final VehicleTypeCatalog vehicleTypes;
+
+    /**
+     * The publisher of the changes of the yards, it's never null.
+     */
+    private final YardEventPublisher events;
+
+    /**
+     * The retry policies of the operations, it's never null.
+     */
+    private final YardRetryPolicies retries;
+
+    /**
+     * The template of the transactions, each retry runs in a new one.
+     */
+    private final TransactionTemplate transactions;
+
+    /**
+     * The log of the occupancy changes, it's never null.
+     */
+    private final OccupancyEventRepository occupancyEvents;
+
+    /**
+     * The longest range of a history.
+     */
+    private final Duration occupancyMaxRange;
+
+    /**
+     * Maximum number of events waiting to be sent to a subscriber, a
+     * subscriber that overflows it is disconnected.
+     */
+    private static final int SUBSCRIPTION_BUFFER = 256;
+
+    /**
+     * Maximum number of free docks proposed by the queues that are tried
+     * before searching one in the database, the proposed docks could have
+     * been taken by other instances of the service.
+     */
+    private static final int DOCK_CANDIDATES = 3;
+
+    /**
+     * Identifies this run of the service in the entity tags, the versions
+     * of the index start again on each run and are not shared between
+     * instances.
+     */
+    private final String epoch =
+            Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
 
     /**
      * Constructor.
      *
      * @param repository Repository to persists or extract the needed
      *                   data of the tasks.
+     * @param index      In-memory index of the yards, updated after each
+     *                   write in the repository.
+     * @param freeDocks  In-memory queues of the free docks, updated with
+     *                   the index.
+     * @param vehicleTypes In-memory dictionary of the vehicle types, used
+     *                   to embed their names in the yards.
+     * @param events     Publisher of the changes of the yards.
+     * @param retries    Retry policies of the operations.
+     * @param transactions Template of the transactions of the writes.
+     * @param occupancyEvents Log of the occupancy changes, used to compute
+     *                   the occupancy history.
+     * @param maxDays    Days of the longest range of a history.
      */
     @Autowired
-    public YardService(YardRepository repository) {
+    public YardService(YardRepository repository, YardIndex index,
+                       FreeDockIndex freeDocks,
+                       VehicleTypeCatalog vehicleTypes,
+                       YardEventPublisher events, YardRetryPolicies retries,
+                       TransactionTemplate transactions,
+                       OccupancyEventRepository occupancyEvents,
+                       @Value("${yms.occupancy.history.max-days:31}")
+                               int maxDays) {
         this.repository = repository;
+        this.index = index;
+        this.freeDocks = freeDocks;
+        this.vehicleTypes = vehicleTypes;
+        this.events = events;
+        this.retries = retries;
+        this.transactions = transactions;
+        this.occupancyEvents = occupancyEvents;
+        this.occupancyMaxRange = Duration.ofDays(maxDays);
     }
 
 
@@ -45,11 +181,12 @@ public class YardService implements HealthCheck {
      * @param id        The id of the wanted tasks.
      * @return True if the tasks exists, false otherwise.
      */
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
-
+    @Bulkhead(name = READ_BULKHEAD)
     public boolean exists(String id) {
-        return this.repository.exist(Integer.parseInt(id));
+        int yardId = Integer.parseInt(id);
+        return retries.call(Operation.READ,
+                () -> this.index.get(yardId) != null);
     }
 
     /**
@@ -59,10 +196,12 @@ public class YardService implements HealthCheck {
      * @param warehouse The warehouse where the task belongs.
      * @return The some object of the given id.
      */
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = READ_BULKHEAD)
     public Yard getYard(String id, String warehouse) {
-        return repository.getByIdAndWarehouse(Integer.parseInt(id), warehouse);
+        int yardId = Integer.parseInt(id);
+        return retries.call(Operation.READ,
+                () -> index.get(yardId, warehouse));
     }
 
 
@@ -77,11 +216,33 @@ public class YardService implements HealthCheck {
      * @param yard
      * @param warehouse
      */
-    @Transactional
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
     public Yard registerYard(Yard yard, String warehouse) {
-        return this.repository.register(yard, warehouse);
+        return retries.call(Operation.WRITE,
+                () -> transactions.execute(status -> {
+                    Yard createdYard = repository.register(yard, warehouse);
+                    afterCommit(createdYard, YardEvent.Type.REGISTER);
+                    return createdYard;
+                }));
+    }
+
+    /**
+     * Save several Yards of a warehouse in the repository in one transaction.
+     *
+     * @param yards     the yards to register.
+     * @param warehouse the warehouse of the yards.
+     * @return the registered yards, in the same order.
+     */
+    @CircuitBreaker(name = SERVICE_NAME)
+    public List<Yard> registerYards(List<Yard> yards, String warehouse) {
+        return retries.call(Operation.WRITE,
+                () -> transactions.execute(status -> {
+                    List<Yard> createdYards =
+                            repository.registerAll(yards, warehouse);
+                    createdYards.forEach(created ->
+                            afterCommit(created, YardEvent.Type.REGISTER));
+                    return createdYards;
+                }));
     }
 
     /**
@@ -89,47 +250,420 @@ public class YardService implements HealthCheck {
      *
      * @param warehouse the warehouse that contains the yards
      */
-    @Transactional
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = LISTING_BULKHEAD)
     public List<Yard> getYards(String warehouse) {
-        return repository.getByWarehouse(warehouse);
+        return retries.call(Operation.READ,
+                () -> index.getByWarehouse(warehouse));
+    }
+
+    /**
+     * Returns the entity tag of the yards of a warehouse, it changes each
+     * time a yard of the warehouse changes, and each time a vehicle type
+     * changes if their names are embedded.
+     * <p> The tag must be read before the yards, so the yards are as new as
+     * the tag or newer.
+     *
+     * @param warehouse        the warehouse that contains the yards.
+     * @param vehicleTypeNames whether the yards embed the names of their
+     *                         vehicle types.
+     * @return the strong entity tag, quoted.
+     */
+    public String getYardsTag(String warehouse, boolean vehicleTypeNames) {
+        return tag(index.currentVersion(warehouse), vehicleTypeNames);
+    }
+
+    /**
+     * Returns the entity tag of all the yards, it changes each time any
+     * yard changes, and each time a vehicle type changes if their names are
+     * embedded.
+     * <p> The tag must be read before the yards, so the yards are as new as
+     * the tag or newer.
+     *
+     * @param vehicleTypeNames whether the yards embed the names of their
+     *                         vehicle types.
+     * @return the strong entity tag, quoted.
+     */
+    public String getYardsTag(boolean vehicleTypeNames) {
+        return tag(index.currentVersion(), vehicleTypeNames);
+    }
+
+    /**
+     * Creates an entity tag of yards of this run of the service.
+     *
+     * @param version          the version of the tagged yards.
+     * @param vehicleTypeNames whether the version of the vehicle types is
+     *                         part of the tag.
+     * @return the quoted entity tag.
+     */
+    private String tag(long version, boolean vehicleTypeNames) {
+        return tag(vehicleTypeNames
+                ? version + "-" + vehicleTypes.currentVersion()
+                : Long.toString(version));
+    }
+
+    /**
+     * Creates an entity tag of this run of the service.
+     *
+     * @param version the version of the tagged yards.
+     * @return the quoted entity tag.
+     */
+    private String tag(String version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * Copies the yards with the names of their vehicle types embedded,
+     * the given yards are not changed.
+     *
+     * @param yards the yards.
+     * @return the copies with the names, in the same order.
+     */
+    public List<Yard> withVehicleTypeNames(List<Yard> yards) {
+        List<Yard> named = new ArrayList<>(yards.size());
+        for (Yard yard : yards) {
+            named.add(withVehicleTypeName(yard));
+        }
+        return named;
+    }
+
+    /**
+     * Copies a yard with the name of its vehicle type embedded, the given
+     * yard is not changed.
+     *
+     * @param yard the yard, can be null.
+     * @return the copy with the name, or null if the yard is null.
+     */
+    public Yard withVehicleTypeName(Yard yard) {
+        return yard == null ? null : yard.withVehicleTypeName(
+                vehicleTypes.getName(yard.getVehicleType()));
     }
 
     /**
      * get a list of yards.
      */
-    @Transactional
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = LISTING_BULKHEAD)
     public List<Yard> getYards() {
-        return repository.getAll();
+        return retries.call(Operation.READ, index::getAll);
+    }
+
+    /**
+     * get a page of the yards of all the warehouses ordered by id.
+     *
+     * @param after the id after which the page starts, 0 for the first page.
+     * @param limit the max number of yards of the page.
+     * @return the {@link YardPage} with the cursor of the next page.
+     */
+    @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = LISTING_BULKHEAD)
+    public YardPage getYards(int after, int limit) {
+        return retries.call(Operation.READ, () ->
+                new YardPage(repository.getPage(after, limit), limit));
+    }
+
+    /**
+     * Runs an action with each yard of all the warehouses, ordered by
+     * warehouse and id, without loading all of them in memory.
+     * <p> It's not retried, the action could have consumed some yards when
+     * the failure happens.
+     *
+     * @param action the action to run with each yard.
+     */
+    @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = STREAM_BULKHEAD)
+    public void forEachYard(Consumer<Yard> action) {
+        repository.forEach(action);
+    }
+
+
+    /**
+     * Checks the range of an occupancy history.
+     *
+     * @param from the start of the range, inclusive.
+     * @param to   the end of the range, exclusive.
+     * @throws IllegalArgumentException if the range is empty or longer
+     * than the longest range allowed.
+     */
+    public void checkOccupancyRange(Instant from, Instant to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException(
+                    "The start of the range must be before its end");
+        }
+        if (Duration.between(from, to).compareTo(occupancyMaxRange) > 0) {
+            throw new IllegalArgumentException("The range cannot be longer"
+                    + " than " + occupancyMaxRange.toDays() + " days");
+        }
+    }
+
+    /**
+     * Runs an action with the occupancy of each dock of a warehouse over a
+     * range, ordered by id, aggregating the occupancy events while they are
+     * read from the database.
+     * <p> The intervals still open are closed at the end of the range, or
+     * now if the range has not ended. Every dock of the warehouse is in
+     * the history, starting with its state when the range starts.
+     * <p> It's not retried, the action could have consumed some docks when
+     * the failure happens.
+     *
+     * @param warehouse the warehouse of the docks.
+     * @param from      the start of the range, inclusive.
+     * @param to        the end of the range, exclusive.
+     * @param action    the action to run with the occupancy of each dock.
+     * @throws IllegalArgumentException if the range is not valid.
+     */
+    @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = STREAM_BULKHEAD)
+    public void forEachDockOccupancy(String warehouse, Instant from,
+                                     Instant to,
+                                     Consumer<DockOccupancy> action) {
+        checkOccupancyRange(from, to);
+        Instant now = Instant.now();
+        Instant end = now.isBefore(to) ? now : to;
+        OccupancyAggregator aggregator = new OccupancyAggregator(
+                from, end.isBefore(from) ? from : end, action);
+        occupancyEvents.forEach(warehouse, from, to, aggregator);
+        aggregator.finish();
+    }
+
+
+    /**
+     * Marks as occupied the yard with the assignation number, warehouse and
+     * color of the given yard.
+     *
+     * @param yard the yard to occupy.
+     * @return the occupied {@link Yard}, empty if the yard does not exists.
+     */
+    @Bulkhead(name = OCCUPANCY_BULKHEAD)
+    public Optional<Yard> ocuparMuelle(Yard yard) {
+        Optional<Yard> occupiedYard = retries.call(Operation.IDEMPOTENT_WRITE,
+                () -> this.repository.ocuparMuelle(yard));
+        occupiedYard.ifPresent(
+                occupied -> afterCommit(occupied, YardEvent.Type.OCCUPY));
+        return occupiedYard;
     }
 
+    /**
+     * Marks as free the yard with the assignation number, warehouse and
+     * color of the given yard.
+     *
+     * @param yard the yard to free.
+     * @return the freed {@link Yard}, empty if the yard does not exists.
+     */
+    @Bulkhead(name = OCCUPANCY_BULKHEAD)
+    public Optional<Yard> liberarMuelle(Yard yard){
+        Optional<Yard> freeYard = retries.call(Operation.IDEMPOTENT_WRITE,
+                () -> this.repository.liberarMuelle(yard));
+        freeYard.ifPresent(
+                free -> afterCommit(free, YardEvent.Type.FREE));
+        return freeYard;
+    }
 
-    public Yard ocuparMuelle(Yard yard) {
-        return this.repository.ocuparMuelle(yard);
+    /**
+     * Assigns a free dock of a warehouse to an arriving vehicle, the dock
+     * is marked as occupied and returned.
+     * <p> The dock supports the vehicle type, it's of the first preferred
+     * color with a free dock, or of any color if none of them has one, and
+     * it has the lowest assignation number of its color. The candidates
+     * come from the in-memory queues and each one is only taken if it's
+     * still free in the database. If the queues have no candidate, or
+     * several are already taken, the dock is searched in the database, the
+     * queues could miss the docks freed by other instances.
+     *
+     * @param warehouse the warehouse where the vehicle arrives.
+     * @param request   the vehicle type and the preferred colors.
+     * @return the occupied {@link Yard}, empty if there is no free dock.
+     */
+    @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = OCCUPANCY_BULKHEAD)
+    public Optional<Yard> assignDock(String warehouse, DockRequest request) {
+        if (request == null || request.getVehicleType() <= 0) {
+            throw new IllegalArgumentException(
+                    "The vehicle type must be a positive id");
+        }
+        int vehicleType = request.getVehicleType();
+        List<String> colors = request.getColors();
+        Optional<Yard> assigned;
+        try {
+            assigned = retries.call(Operation.WRITE, () -> {
+                for (int i = 0; i < DOCK_CANDIDATES; i++) {
+                    Yard candidate =
+                            freeDocks.poll(warehouse, vehicleType, colors);
+                    if (candidate == null) {
+                        break;
+                    }
+                    Optional<Yard> occupied = repository.occupyIfFree(
+                            candidate.getId(), warehouse, vehicleType);
+                    if (occupied.isPresent()) {
+                        return occupied;
+                    }
+                }
+                return repository.occupyFirstFree(
+                        warehouse, vehicleType, colors);
+            });
+        } catch (RuntimeException e) {
+            // The polled candidates are no longer in the queues.
+            freeDocks.invalidate(warehouse);
+            throw e;
+        }
+        assigned.ifPresent(
+                occupied -> afterCommit(occupied, YardEvent.Type.OCCUPY));
+        return assigned;
     }
 
+    /**
+     * Applies several occupy and free operations in one transaction.
+     *
+     * @param operations the operations to apply, in order.
+     * @return the result of each operation, in the same order, with the
+     * state of the yard after the whole batch.
+     */
+    @CircuitBreaker(name = SERVICE_NAME)
+    @Bulkhead(name = OCCUPANCY_BULKHEAD)
+    public List<OccupancyResult> applyOccupancy(
+            List<OccupancyOperation> operations) {
+        return retries.call(Operation.IDEMPOTENT_WRITE,
+                () -> transactions.execute(status -> occupy(operations)));
+    }
 
-    public Yard liberarMuelle(Yard yard){
-        return this.repository.liberarMuelle(yard);
+    /**
+     * Applies several occupy and free operations in the current
+     * transaction.
+     *
+     * @param operations the operations to apply, in order.
+     * @return the result of each operation, in the same order.
+     */
+    private List<OccupancyResult> occupy(List<OccupancyOperation> operations) {
+        List<OccupancyOperation> valid = new ArrayList<>();
+        for (OccupancyOperation operation : operations) {
+            if (operation != null && operation.isValid()) {
+                valid.add(operation);
+            }
+        }
+        Iterator<Optional<Yard>> states = valid.isEmpty()
+                ? Collections.emptyIterator()
+                : repository.setOccupied(valid).iterator();
+
+        List<OccupancyResult> results = new ArrayList<>(operations.size());
+        for (OccupancyOperation operation : operations) {
+            if (operation == null || !operation.isValid()) {
+                results.add(OccupancyResult.failed("The operation, " +
+                        "warehouse and color cannot be null or empty"));
+                continue;
+            }
+            Optional<Yard> state = states.next();
+            YardEvent.Type type = operation.isOccupy()
+                    ? YardEvent.Type.OCCUPY : YardEvent.Type.FREE;
+            state.ifPresent(changed -> afterCommit(changed, type));
+            results.add(state.map(OccupancyResult::applied)
+                    .orElseGet(() -> OccupancyResult.failed("Yard not Found")));
+        }
+        return results;
     }
+
     /**
-     * Update a Yard.
+     * Update a Yard, only if it was not changed since the version sent in
+     * the yard, or since it's read if the yard has no version.
+     * <p> The yard is read from the primary locking its row, so the changes
+     * are merged into its current state and an update without version does
+     * not conflict. The loser of a conflict gets the current state read
+     * from the primary. It's only retried when the update was not applied,
+     * a retry of an applied update would conflict with its own new version.
      * @param yard the yard with the new information.
      * @param yardId the id to be updated
-     * @return {@link Yard} the updated object.
+     * @return {@link Yard} the updated object, empty if the yard does not
+     * exist.
+     * @throws YardConflictException if the yard is no longer in the
+     * expected version.
      */
-    @Transactional
-    @Retry(name = SERVICE_NAME)
     @CircuitBreaker(name = SERVICE_NAME)
-    public Yard update(Yard yard, String yardId) {
-        Yard oldYard = repository.get(Integer.parseInt(yardId));
-        yard.copyTo(oldYard);
-        Yard newYard = repository.update(oldYard);
+    public Optional<Yard> update(Yard yard, String yardId) {
+        int id = Integer.parseInt(yardId);
+        return retries.call(Operation.WRITE,
+                () -> transactions.execute(status -> {
+                    Optional<Yard> oldYard = repository.getForWrite(id);
+                    if (oldYard.isEmpty()) {
+                        return Optional.<Yard>empty();
+                    }
+                    int expected = yard.getVersion() == null
+                            ? oldYard.get().getVersion() : yard.getVersion();
+                    yard.copyTo(oldYard.get());
+                    Yard newYard = repository.update(oldYard.get(), expected)
+                            .orElseThrow(() -> new YardConflictException(
+                                    expected,
+                                    repository.getForWrite(id).orElse(null)));
+                    afterCommit(newYard, YardEvent.Type.UPDATE);
+                    return Optional.of(newYard);
+                }));
+    }
 
-        return newYard;
+    /**
+     * Streams the changes of the yards of a warehouse, starting with a
+     * snapshot of all its yards.
+     * <p> The subscription to the changes starts before reading the
+     * snapshot, the changes received meanwhile are kept and only the ones
+     * newer than the snapshot are sent after it, so no change is lost or
+     * sent twice.
+     *
+     * @param warehouse the warehouse of the yards.
+     * @return the snapshot followed by each change, in version order.
+     * @throws IllegalArgumentException if the warehouse has no yards.
+     */
+    public Flux<YardEvent> subscribe(String warehouse) {
+        if (index.getByWarehouse(warehouse).isEmpty()) {
+            throw new IllegalArgumentException(
+                    "The warehouse " + warehouse + " has no yards");
+        }
+        return Flux.defer(() -> {
+            UnicastProcessor<YardEvent> changes = UnicastProcessor.create(
+                    Queues.<YardEvent>get(SUBSCRIPTION_BUFFER).get());
+            Disposable subscription = events.events(warehouse)
+                    .subscribe(changes::onNext, changes::onError,
+                            changes::onComplete);
+            long version = index.version(warehouse);
+            List<Yard> yards = index.getByWarehouse(warehouse);
+            return Flux.just(YardEvent.snapshot(warehouse, version, yards))
+                    .concatWith(changes.filter(
+                            event -> event.getVersion() > version))
+                    .doFinally(signal -> subscription.dispose());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Updates the index with the persisted yard and publishes the change
+     * once the current transaction commits, or right away if there is no
+     * transaction.
+     * @param yard the persisted yard.
+     * @param type the kind of change.
+     */
+    private void afterCommit(Yard yard, YardEvent.Type type) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(yard, type);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        apply(yard, type);
+                    }
+                });
+    }
+
+    /**
+     * Updates the index and the free docks with the persisted yard and
+     * publishes the change.
+     * <p> All happen holding the lock of the index, so the free docks and
+     * the events of a warehouse follow the order of the versions.
+     * @param yard the persisted yard.
+     * @param type the kind of change.
+     */
+    private void apply(Yard yard, YardEvent.Type type) {
+        synchronized (index) {
+            long version = index.put(yard);
+            freeDocks.update(yard, version);
+            events.publish(YardEvent.of(type, version, yard));
+        }
     }
 }
 
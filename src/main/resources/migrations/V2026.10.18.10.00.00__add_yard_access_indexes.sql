@@ -0,0 +1,18 @@
+-- Indexes of the access paths of the yards.
+
+-- Only one yard of a color can have an assignation number in a warehouse.
+-- It's also the index of the reads by warehouse, by warehouse and color
+-- ordered by assignation number, and by assignation number, warehouse and
+-- color of the occupy and free operations.
+-- If it fails because of existing duplicates, they are listed by:
+--   SELECT warehouse, color, assignation_number, count(*) FROM public.yard
+--   GROUP BY 1, 2, 3 HAVING count(*) > 1;
+ALTER TABLE public.yard
+ADD CONSTRAINT "uq_yard__warehouse_color_assignation_number"
+UNIQUE (warehouse, color, assignation_number);
+
+-- The free docks of a warehouse and color in assignation number order, the
+-- occupied docks are not in the index.
+CREATE INDEX IF NOT EXISTS "ix_yard__free_docks"
+ON public.yard (warehouse, color, assignation_number)
+WHERE occupied IS NOT TRUE;
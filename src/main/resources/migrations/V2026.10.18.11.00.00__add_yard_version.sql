@@ -0,0 +1,3 @@
+-- Version of each yard for the optimistic concurrency of the writes, each
+-- write increments it and the updates only apply to the version they read.
+ALTER TABLE public.yard ADD COLUMN IF NOT EXISTS version int NOT NULL DEFAULT 0;
@@ -0,0 +1,17 @@
+-- Append-only log of the changes of the occupied flag of the yards.
+
+-- Partitioned by day, the service creates the partition of a day before
+-- writing its first event, see OccupancyEventRepository. There is no
+-- default partition (PostgreSQL 10), an event of a day without partition
+-- is rejected. The old partitions are dropped to remove the history.
+-- The id orders the events written at the same moment.
+CREATE TABLE IF NOT EXISTS public.yard_occupancy_event (
+       id bigserial not null,
+       yard_id int not null,
+       warehouse varchar not null,
+       color varchar not null,
+       assignation_number int not null,
+       occupied boolean not null,
+       version int not null,
+       occurred_at timestamptz not null
+) PARTITION BY RANGE (occurred_at);
@@ -0,0 +1,134 @@
+package com.frubana.operations.logistics.yms.common.clients;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the client of the report data service against a local mock.
+ */
+public class ReportDataServiceClientTest {
+    // The response of the mock.
+    private static final String RESPONSE = "[" +
+            "{\"id\":1,\"color\":\"#ff0000\",\"assignationNumber\":1," +
+            "\"warehouse\":\"PA\",\"occupied\":false,\"vehicleType\":1}," +
+            "{\"id\":2,\"color\":\"#ff0000\",\"assignationNumber\":2," +
+            "\"warehouse\":\"PA\",\"occupied\":true,\"vehicleType\":1}]";
+
+    // The mock of the service.
+    private HttpServer server;
+    // The number of requests received by the mock.
+    private final AtomicInteger requests = new AtomicInteger();
+    // Released to let the mock answer.
+    private final CountDownLatch answer = new CountDownLatch(1);
+    // The query of the last request.
+    private volatile String query;
+    // Subject.
+    private ReportDataServiceClient client;
+
+    /** Starts the mock in a random port and creates the client.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/report-data-service/microservice/orders/",
+                exchange -> {
+                    requests.incrementAndGet();
+                    query = exchange.getRequestURI().getQuery();
+                    try {
+                        answer.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    byte[] body = RESPONSE.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders()
+                            .add("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream output = exchange.getResponseBody()) {
+                        output.write(body);
+                    }
+                });
+        server.start();
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("frubana.report_data_service.url_co",
+                        "http://localhost:" + server.getAddress().getPort()
+                                + "/report-data-service")
+                .withProperty("frubana.report_data_service.orders",
+                        "/microservice/orders/");
+        client = new ReportDataServiceClient(WebClient.builder(),
+                CircuitBreakerRegistry.ofDefaults(), env);
+    }
+
+    /** Stops the mock.
+     */
+    @AfterEach
+    public void tearDown() {
+        answer.countDown();
+        server.stop(0);
+    }
+
+    /** Tests that the identical calls in flight and the cached ones cost
+     * one request to the service.
+     */
+    @Test
+    public void coalesceCallsTest() {
+        Mono<List<Yard>> first = client.someObjects("PA", "2020-05-22");
+        Mono<List<Yard>> second = client.someObjects("PA", "2020-05-22");
+        first.subscribe();
+        second.subscribe();
+        answer.countDown();
+
+        List<Yard> yards = second.block();
+        List<Yard> cached = client.requireSomeObjects("PA", "2020-05-22");
+
+        assertEquals(1, requests.get(), "The calls were not coalesced");
+        assertEquals(2, yards.size(), "Unexpected number of objects");
+        assertSame(yards, cached, "The response was not cached");
+        assertEquals("region=BOG&date=2020-05-22", query,
+                "The query is not the expected");
+    }
+
+    /** Tests that the streamed objects are the ones of the response.
+     */
+    @Test
+    public void streamTest() {
+        answer.countDown();
+
+        List<Yard> yards = client.streamSomeObjects("PA", "2020-05-22")
+                .collectList().block();
+
+        assertEquals(2, yards.size(), "Unexpected number of objects");
+        assertTrue(yards.get(1).getOccupied(),
+                "The objects were not mapped");
+    }
+
+    /** Tests that the unknown warehouses and invalid dates are rejected
+     * without calling the service.
+     */
+    @Test
+    public void invalidArgumentsTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> client.someObjects("XX", "2020-05-22"),
+                "The unknown warehouse was accepted");
+        assertThrows(IllegalArgumentException.class,
+                () -> client.someObjects("PA", "22/05/2020"),
+                "The invalid date was accepted");
+        assertEquals(0, requests.get(), "The service was called");
+    }
+}
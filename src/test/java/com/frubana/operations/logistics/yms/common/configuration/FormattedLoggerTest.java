@@ -0,0 +1,55 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the formatter of the logs.
+ */
+public class FormattedLoggerTest {
+    // Subject.
+    private final FormattedLogger logFormatter = new FormattedLogger();
+
+    /** Tests that the params are not copied nor serialized if the level is
+     * disabled.
+     */
+    @Test
+    public void disabledLevelTest() {
+        Logger logger = mock(Logger.class);
+        when(logger.isInfoEnabled()).thenReturn(false);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> params = mock(Map.class);
+
+        logFormatter.logInfo(logger, "test", "message", params);
+
+        verify(logger, never()).info(anyString(), any(), any());
+        verifyNoInteractions(params);
+    }
+
+    /** Tests that the collections are logged as their size and a sample,
+     * and that the changes done after logging are not logged.
+     */
+    @Test
+    public void truncateCollectionsTest() {
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            numbers.add(i);
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put("numbers", numbers);
+
+        FormattedLogger.LazyJson data = new FormattedLogger.LazyJson(params);
+        params.put("later", "ignored");
+
+        assertEquals("{\"numbers\":{\"count\":100,\"sample\":[0,1,2,3,4]}}",
+                data.toString(), "The collection was not truncated");
+    }
+}
@@ -0,0 +1,133 @@
+package com.frubana.operations.logistics.yms.common.configuration;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.repository.VehicleTypeRepository;
+import com.frubana.operations.logistics.yms.yard.domain.repository.YardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the metrics of the repositories and their statements.
+ */
+public class RepositoryMetricsTest {
+    // Registry of the meters.
+    private MeterRegistry registry;
+    // Subject.
+    private RepositoryMetrics metrics;
+
+    /** Creates the metrics with a limit of 2 warehouses.
+     */
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new RepositoryMetrics(registry, 2);
+    }
+
+    /** Wraps the repository with the metrics aspect.
+     */
+    private <T> T instrument(T repository) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(repository);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(metrics);
+        return factory.getProxy();
+    }
+
+    /** Creates a yard of the given warehouse.
+     */
+    private static Yard yard(int id, String warehouse) {
+        Yard yard = new Yard(id, "#ff0000", id, false);
+        yard.assignWarehouse(warehouse);
+        return yard;
+    }
+
+    /** Tests that the methods are timed with their warehouse and rows.
+     */
+    @Test
+    public void timesOperationsTest() {
+        YardRepository repository = mock(YardRepository.class);
+        when(repository.getByWarehouse("PA")).thenReturn(
+                List.of(yard(1, "PA"), yard(2, "PA")));
+        when(repository.get(3)).thenThrow(new IllegalStateException());
+        YardRepository instrumented = instrument(repository);
+
+        instrumented.getByWarehouse("PA");
+        assertThrows(IllegalStateException.class, () -> instrumented.get(3),
+                "The error was not thrown");
+
+        assertEquals(1, registry.get(RepositoryMetrics.TIMER)
+                        .tags("operation", "yard.getByWarehouse",
+                                "warehouse", "PA", "outcome", "success")
+                        .timer().count(),
+                "The operation was not timed");
+        assertEquals(2, registry.get(RepositoryMetrics.ROWS)
+                        .tag("operation", "yard.getByWarehouse")
+                        .summary().totalAmount(),
+                "The rows were not recorded");
+        assertEquals(1, registry.get(RepositoryMetrics.TIMER)
+                        .tags("operation", "yard.get",
+                                "warehouse", RepositoryMetrics.NONE,
+                                "outcome", "error")
+                        .timer().count(),
+                "The error was not timed");
+    }
+
+    /** Tests that the warehouses over the limit are tagged as other.
+     */
+    @Test
+    public void warehousesAreCappedTest() {
+        YardRepository instrumented = instrument(mock(YardRepository.class));
+
+        for (String warehouse : List.of("PA", "ALQ", "ARM", "PA")) {
+            instrumented.getByWarehouse(warehouse);
+        }
+
+        assertEquals(2, registry.get(RepositoryMetrics.TIMER)
+                        .tag("warehouse", "PA").timer().count(),
+                "A known warehouse was not tagged");
+        assertEquals(1, registry.get(RepositoryMetrics.TIMER)
+                        .tag("warehouse", RepositoryMetrics.OTHER)
+                        .timer().count(),
+                "The warehouse over the limit was not tagged as other");
+        assertEquals(3, registry.get(RepositoryMetrics.TIMER)
+                        .timers().size(),
+                "Unexpected number of series");
+    }
+
+    /** Tests that the statements are timed with the operation that runs
+     * them.
+     */
+    @Test
+    public void statementsAreTaggedWithTheOperationTest(@TempDir Path dir) {
+        Jdbi jdbi = Jdbi.create("jdbc:sqlite:" + dir.resolve("yms.db"));
+        jdbi.useHandle(handle -> handle.execute("CREATE TABLE vehicle_type" +
+                " (id integer primary key, name varchar(16) not null)"));
+        jdbi.installPlugin(new SqlMetricsPlugin(registry));
+        VehicleTypeRepository instrumented =
+                instrument(new VehicleTypeRepository(jdbi));
+
+        instrumented.getAll();
+
+        Timer select = registry.get(SqlMetricsPlugin.TIMER)
+                .tags("operation", "vehicleType.getAll",
+                        "statement", "select", "outcome", "success")
+                .timer();
+        assertEquals(1, select.count(), "The statement was not timed");
+        assertEquals("update", SqlMetricsPlugin.statement(
+                "\n UPDATE yard SET occupied = true"),
+                "Unexpected statement");
+        assertEquals(RepositoryMetrics.OTHER,
+                SqlMetricsPlugin.statement("VACUUM"),
+                "Unexpected statement");
+    }
+}
@@ -0,0 +1,54 @@
+package com.frubana.operations.logistics.yms.common.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the utility of the correlation ids.
+ */
+public class CorrelationIdTest {
+
+    /** Removes the id of the test thread.
+     */
+    @AfterEach
+    public void tearDown() {
+        MDC.remove(CorrelationId.MDC_KEY);
+    }
+
+    /** Tests that only the valid received ids are kept.
+     */
+    @Test
+    public void resolveTest() {
+        assertEquals("abc-123", CorrelationId.resolve("abc-123"),
+                "The valid id was replaced");
+        assertEquals(16, CorrelationId.resolve(null).length(),
+                "The missing id was not generated");
+        assertNotEquals("bad\nid", CorrelationId.resolve("bad\nid"),
+                "The invalid id was kept");
+    }
+
+    /** Tests that a wrapped task runs with the id of the thread that
+     * wrapped it, and that the id does not stay in the executor thread.
+     */
+    @Test
+    public void wrapTest() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MDC.put(CorrelationId.MDC_KEY, "request-1");
+            String inside = executor.submit(
+                    CorrelationId.wrap(CorrelationId::current)).get();
+            String after = executor.submit(CorrelationId::current).get();
+
+            assertEquals("request-1", inside,
+                    "The id was not carried to the task");
+            assertNull(after, "The id stayed in the executor thread");
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.frubana.operations.logistics.yms.common.utils;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the notifications against a local stub of the slack web hook.
+ */
+public class SlackUtilsStubServerTest {
+    // The stub of the slack web hook.
+    private HttpServer server;
+    // The bodies received by the stub.
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+    // Released when the stub receives a request.
+    private CountDownLatch received;
+    // Released to let the stub answer, used to keep the sender busy.
+    private CountDownLatch answer;
+    // Subject.
+    private SlackUtils notifier;
+
+    /** Starts the stub in a random port.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        received = new CountDownLatch(1);
+        answer = new CountDownLatch(0);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hook", exchange -> {
+            bodies.add(new String(exchange.getRequestBody().readAllBytes(),
+                    StandardCharsets.UTF_8));
+            received.countDown();
+            try {
+                answer.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    /** Stops the notifier and the stub.
+     */
+    @AfterEach
+    public void tearDown() {
+        answer.countDown();
+        notifier.stop();
+        server.stop(0);
+    }
+
+    /** Creates a started notifier that calls the stub.
+     */
+    private SlackUtils notifier(int capacity, long windowMs) {
+        return notifier(new RestTemplate(), capacity, windowMs);
+    }
+
+    /** Creates a started notifier that calls the stub with a client.
+     */
+    private SlackUtils notifier(RestTemplate restTemplate, int capacity,
+                                long windowMs) {
+        String uri = "http://localhost:" + server.getAddress().getPort()
+                + "/hook";
+        SlackUtils slack = new SlackUtils(uri, restTemplate,
+                new FormattedLogger(), new SimpleMeterRegistry(), capacity,
+                windowMs);
+        slack.start();
+        return slack;
+    }
+
+    /** Tests that the duplicates inside the window are sent once with the
+     * number of times.
+     */
+    @Test
+    public void coalesceDuplicatesTest() throws InterruptedException {
+        notifier = notifier(10, 300);
+
+        notifier.logError("db down");
+        notifier.logError("db down");
+        notifier.logError("db down");
+
+        assertTrue(received.await(5, TimeUnit.SECONDS),
+                "The stub did not receive the message");
+        Thread.sleep(300);
+        assertEquals(1, bodies.size(), "The duplicates were not coalesced");
+        assertTrue(bodies.get(0).contains("db down (x3)"),
+                "The message does not have the count, instead is " +
+                        bodies.get(0));
+    }
+
+    /** Tests that the callers are not blocked by a slow slack and the
+     * messages are dropped when the queue is full.
+     */
+    @Test
+    public void dropWhenFullTest() throws InterruptedException {
+        answer = new CountDownLatch(1);
+        notifier = notifier(2, 0);
+        notifier.logError("first");
+        assertTrue(received.await(5, TimeUnit.SECONDS),
+                "The stub did not receive the message");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            notifier.logError("message " + i);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(
+                System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 1000, "The caller waited for slack");
+        assertEquals(3, notifier.getDropped(),
+                "Unexpected number of dropped messages");
+    }
+
+    /** Tests that a batch is sent at the end of the window while the
+     * messages keep arriving.
+     */
+    @Test
+    public void sendDuringStormTest() throws InterruptedException {
+        notifier = notifier(10, 100);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        Thread storm = new Thread(() -> {
+            while (System.nanoTime() < end) {
+                notifier.logError("db down");
+            }
+        });
+        storm.start();
+
+        boolean sent = received.await(1, TimeUnit.SECONDS);
+        storm.join();
+        assertTrue(sent, "Nothing was sent while the messages kept arriving");
+    }
+
+    /** Tests that a message that fails with an unexpected error does not
+     * stop the delivery of the next messages.
+     */
+    @Test
+    public void failingSendTest() throws InterruptedException {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            if (new String(body, StandardCharsets.UTF_8).contains("corrupt")) {
+                throw new IllegalStateException("Unexpected failure");
+            }
+            return execution.execute(request, body);
+        });
+        notifier = notifier(restTemplate, 10, 0);
+
+        notifier.logError("corrupt message");
+        notifier.logError("db down");
+
+        assertTrue(received.await(5, TimeUnit.SECONDS),
+                "The message after the failure was not sent");
+        assertEquals(1, bodies.size(), "Unexpected number of messages");
+        assertTrue(bodies.get(0).contains("db down"),
+                "Unexpected message " + bodies.get(0));
+    }
+}
@@ -1,6 +1,7 @@
 package com.frubana.operations.logistics.yms.common.utils;
 
 import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -32,11 +33,14 @@ import static org.mockito.Mockito.*;
 @ExtendWith(SpringExtension.class)
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @ContextConfiguration(classes = {FormattedLogger.class,
-        SlackUtils.class, RestTemplate.class})
+        SlackUtils.class, RestTemplate.class, SimpleMeterRegistry.class})
 @TestPropertySource(properties = {
         "log.slack.uri = http://slack.host.com",
+        "log.slack.coalesce-window-ms = 0",
 })
 public class SlackUtilsTest {
+    // Max milliseconds to wait for the background sender.
+    private static final long TIMEOUT = 2000;
     // Subject.
     @SpyBean private SlackUtils notifier;
     // Spy.
@@ -68,8 +72,8 @@ public class SlackUtilsTest {
         //Subject of the test
         notifier.logInfo("some message");
 
-        // Validate that the logic is being called as expected.
-        verify(restTemplate, times(1))
+        // Validate that the logic is being called in the background.
+        verify(restTemplate, timeout(TIMEOUT).times(1))
                 .exchange(stringCaptor.capture(), methodCaptor.capture(),
                         any(), any(ParameterizedTypeReference.class));
 
@@ -95,8 +99,8 @@ public class SlackUtilsTest {
         //Subject of the test
         notifier.logError("some message");
 
-        // Validate that the logic is being called as expected.
-        verify(restTemplate, times(1))
+        // Validate that the logic is being called in the background.
+        verify(restTemplate, timeout(TIMEOUT).times(1))
                 .exchange(stringCaptor.capture(), methodCaptor.capture(),
                         any(), any(ParameterizedTypeReference.class));
 
@@ -122,12 +126,12 @@ public class SlackUtilsTest {
         //Subject of the test
         notifier.logInfo("some message");
 
-        // Validate that the logic is being called as expected.
-        verify(restTemplate, times(1))
+        // Validate that the logic is being called in the background.
+        verify(restTemplate, timeout(TIMEOUT).times(1))
                 .exchange(stringCaptor.capture(), methodCaptor.capture(),
                         any(), any(ParameterizedTypeReference.class));
 
-        verify(logger, times(1))
+        verify(logger, timeout(TIMEOUT).times(1))
                 .logError(any(), anyString(),
                         errorMsgCaptor.capture(), paramsCaptor.capture(),
                         exceptionCaptor.capture());
@@ -169,12 +173,12 @@ public class SlackUtilsTest {
         //Subject of the test
         notifier.logError("some message");
 
-        // Validate that the logic is being called as expected.
-        verify(restTemplate, times(1))
+        // Validate that the logic is being called in the background.
+        verify(restTemplate, timeout(TIMEOUT).times(1))
                 .exchange(stringCaptor.capture(), methodCaptor.capture(),
                         any(), any(ParameterizedTypeReference.class));
 
-        verify(logger, times(1))
+        verify(logger, timeout(TIMEOUT).times(1))
                 .logError(any(), anyString(),
                         errorMsgCaptor.capture(), paramsCaptor.capture(),
                         exceptionCaptor.capture());
@@ -0,0 +1,83 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the in-memory queues of the free docks.
+ */
+public class FreeDockIndexTest {
+    // Mocks
+    private YardIndex index;
+    // Subject.
+    private FreeDockIndex freeDocks;
+
+    /** Prepares a warehouse with free and occupied docks of two colors.
+     */
+    @BeforeEach
+    public void setUp() {
+        index = mock(YardIndex.class);
+        when(index.currentVersion("PA")).thenReturn(1L);
+        when(index.getByWarehouse("PA")).thenReturn(List.of(
+                dock(1, "#ff0000", 1, true, 1),
+                dock(2, "#ff0000", 2, false, 1),
+                dock(3, "#00ff00", 1, false, 2),
+                dock(4, "#00ff00", 3, false, 1),
+                dock(5, "#ff0000", 4, false, 1)));
+        freeDocks = new FreeDockIndex(index);
+    }
+
+    /** Creates a dock of the warehouse.
+     */
+    private static Yard dock(int id, String color, int number,
+                             boolean occupied, int vehicleType) {
+        Yard yard = new Yard(id, color, number, occupied);
+        yard.assignWarehouse("PA");
+        yard.setVehicleType(vehicleType);
+        return yard;
+    }
+
+    /** Tests that the free docks of the vehicle type are polled by
+     * assignation number, preferring the given colors.
+     */
+    @Test
+    public void pollOrderTest() {
+        assertEquals(4, freeDocks.poll("PA", 1, List.of("#00ff00")).getId(),
+                "The preferred color was not used");
+        assertEquals(2, freeDocks.poll("PA", 1, List.of("#0000ff")).getId(),
+                "The lowest assignation number was not used");
+        assertEquals(5, freeDocks.poll("PA", 1, List.of()).getId(),
+                "Unexpected dock");
+        assertNull(freeDocks.poll("PA", 1, List.of()),
+                "Polled a dock that is occupied or of another vehicle type");
+        verify(index, times(1)).getByWarehouse("PA");
+    }
+
+    /** Tests that the changes of this instance are applied without
+     * rebuilding the queues, and a missed change rebuilds them.
+     */
+    @Test
+    public void updateTest() {
+        freeDocks.poll("PA", 2, List.of());
+
+        freeDocks.update(dock(2, "#ff0000", 2, true, 1), 2);
+        freeDocks.update(dock(1, "#ff0000", 1, false, 1), 3);
+        when(index.currentVersion("PA")).thenReturn(3L);
+
+        assertEquals(1, freeDocks.poll("PA", 1, List.of()).getId(),
+                "The freed dock was not queued");
+        assertEquals(5, freeDocks.poll("PA", 1, List.of("#ff0000")).getId(),
+                "The occupied dock was not removed");
+        verify(index, times(1)).getByWarehouse("PA");
+
+        when(index.currentVersion("PA")).thenReturn(5L);
+        assertEquals(2, freeDocks.poll("PA", 1, List.of("#ff0000")).getId(),
+                "The queues were not rebuilt after a missed change");
+        verify(index, times(2)).getByWarehouse("PA");
+    }
+}
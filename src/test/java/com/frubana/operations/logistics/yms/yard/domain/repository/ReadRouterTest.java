@@ -0,0 +1,82 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import org.jdbi.v3.core.Jdbi;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the selection of the database of the reads.
+ */
+public class ReadRouterTest {
+    // Mocks
+    private Jdbi primary;
+    private Jdbi replica;
+    // Subject.
+    private ReadRouter router;
+
+    /** Prepares a router with a window of one minute.
+     */
+    @BeforeEach
+    public void setUp() {
+        primary = mock(Jdbi.class);
+        replica = mock(Jdbi.class);
+        router = new ReadRouter(primary, replica, 60_000);
+    }
+
+    /** Clears the transaction of the test, if any.
+     */
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /** Tests that a write without transaction sends the reads of its
+     * warehouse to the primary right away.
+     */
+    @Test
+    public void writeWithoutTransactionTest() {
+        assertSame(replica, router.forWarehouse("PA"),
+                "A warehouse without writes is read from the primary");
+
+        router.markWrite("PA");
+
+        assertSame(primary, router.forWarehouse("PA"),
+                "A written warehouse is read from the replica");
+        assertSame(replica, router.forWarehouse("BO"),
+                "Other warehouse is read from the primary");
+        assertSame(primary, router.forAny(),
+                "The reads of any warehouse go to the replica");
+    }
+
+    /** Tests that a write in a transaction only sends the reads to the
+     * primary once it commits, and never if it rolls back.
+     */
+    @Test
+    public void writeInTransactionTest() {
+        TransactionSynchronizationManager.initSynchronization();
+        router.markWrite("PA");
+        router.markWrite("BO");
+
+        assertSame(replica, router.forWarehouse("PA"),
+                "The write was marked before the commit");
+        assertSame(replica, router.forAny(),
+                "The write was marked before the commit");
+
+        TransactionSynchronization commit =
+                TransactionSynchronizationManager.getSynchronizations().get(0);
+        TransactionSynchronizationManager.clearSynchronization();
+        commit.afterCommit();
+
+        assertSame(primary, router.forWarehouse("PA"),
+                "The committed write was not marked");
+        assertSame(replica, router.forWarehouse("BO"),
+                "The rolled back write was marked");
+    }
+}
@@ -0,0 +1,65 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the in-memory dictionary of the vehicle types.
+ */
+public class VehicleTypeCatalogTest {
+    // Mocks
+    private VehicleTypeRepository repository;
+    // Subject.
+    private VehicleTypeCatalog catalog;
+
+    /** Prepares a catalog that never expires its snapshot.
+     */
+    @BeforeEach
+    public void setUp() {
+        repository = mock(VehicleTypeRepository.class);
+        when(repository.getAllById()).thenReturn(
+                Map.of(2, "TRUCK", 1, "VAN", 3, "VAN"));
+        catalog = new VehicleTypeCatalog(repository, new FormattedLogger(), 0);
+    }
+
+    /** Tests that the vehicle types are loaded once and then served from
+     * memory in both directions.
+     */
+    @Test
+    public void lookupsLoadOnceTest() {
+        catalog.rebuild();
+
+        assertEquals("TRUCK", catalog.getName(2), "Unexpected name");
+        assertNull(catalog.getName(9), "Found a vehicle type that does not" +
+                " exists");
+        assertEquals(1, catalog.getId("VAN"),
+                "The lowest id of a repeated name was not returned");
+        assertEquals(List.of("VAN", "TRUCK", "VAN"), catalog.getNames(),
+                "The names are not ordered by id");
+        verify(repository, times(1)).getAllById();
+    }
+
+    /** Tests that a registered vehicle type is visible without reloading
+     * and changes the version.
+     */
+    @Test
+    public void putWriteThroughTest() {
+        long loaded = catalog.currentVersion();
+
+        catalog.put(4, "BIKE");
+
+        assertEquals(4, catalog.getId("BIKE"),
+                "The registered vehicle type is not in the catalog");
+        assertTrue(catalog.currentVersion() > loaded,
+                "The version did not change");
+        assertEquals(4, catalog.getNames().size(),
+                "Unexpected number of vehicle types");
+        verify(repository, times(1)).getAllById();
+    }
+}
@@ -0,0 +1,196 @@
+package com.frubana.operations.logistics.yms.yard.domain.repository;
+
+import com.frubana.operations.logistics.yms.common.configuration.FormattedLogger;
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Tests the in-memory index of the yards.
+ */
+public class YardIndexTest {
+    // Mocks
+    private YardRepository repository;
+    // Subject.
+    private YardIndex index;
+
+    /** Prepares an index that never expires its snapshots.
+     */
+    @BeforeEach
+    public void setUp() {
+        repository = mock(YardRepository.class);
+        index = new YardIndex(repository, new FormattedLogger(), 0);
+    }
+
+    /** Creates a yard of the given warehouse.
+     */
+    private static Yard yard(int id, String color, int number,
+                             String warehouse) {
+        Yard yard = new Yard(id, color, number, false);
+        yard.assignWarehouse(warehouse);
+        return yard;
+    }
+
+    /** Tests that a warehouse is loaded once and then served from memory.
+     */
+    @Test
+    public void getByWarehouseLoadsOnceTest() {
+        when(repository.getByWarehouse("PA")).thenReturn(List.of(
+                yard(2, "#ff0000", 2, "PA"), yard(1, "#ff0000", 1, "PA")));
+
+        List<Yard> yards = index.getByWarehouse("PA");
+        index.getByWarehouse("PA");
+
+        verify(repository, times(1)).getByWarehouse("PA");
+        assertEquals(2, yards.size(), "Unexpected number of yards");
+        assertEquals(1, yards.get(0).getAssignationNumber(),
+                "The yards are not ordered by assignation number");
+        assertNotNull(index.get(2, "PA"), "The yard was not indexed by id");
+        assertNotNull(index.getByAssignationNumber("PA", "#ff0000", 2),
+                "The yard was not indexed by assignation number");
+    }
+
+    /** Tests that the writes are visible without reloading the warehouse.
+     */
+    @Test
+    public void putWriteThroughTest() {
+        when(repository.getByWarehouse("PA")).thenReturn(
+                List.of(yard(1, "#ff0000", 1, "PA")));
+        index.getByWarehouse("PA");
+
+        index.put(yard(3, "#0000ff", 1, "PA"));
+
+        assertEquals(2, index.getByWarehouse("PA").size(),
+                "The registered yard is not in the index");
+        assertEquals(1, index.getByColor("PA", "#0000ff").size(),
+                "The registered yard is not indexed by color");
+        verify(repository, times(1)).getByWarehouse("PA");
+    }
+
+    /** Tests that a yard moved to another warehouse leaves the old one.
+     */
+    @Test
+    public void putMovesWarehouseTest() {
+        when(repository.getAll()).thenReturn(List.of(
+                yard(1, "#ff0000", 1, "PA"), yard(2, "#ff0000", 1, "ALQ")));
+        index.rebuild();
+
+        index.put(yard(1, "#ff0000", 2, "ALQ"));
+
+        assertTrue(index.getByWarehouse("PA").isEmpty(),
+                "The yard is still in the old warehouse");
+        assertEquals(2, index.getByWarehouse("ALQ").size(),
+                "The yard is not in the new warehouse");
+        assertEquals(2, index.getAll().size(), "Unexpected number of yards");
+        verify(repository, never()).getByWarehouse(anyString());
+    }
+
+    /** Tests that an unknown id is searched in the repository with one
+     * query, and the read does not change the version of its warehouse.
+     */
+    @Test
+    public void getUnknownIdTest() {
+        when(repository.get(7)).thenReturn(yard(7, "#ff0000", 1, "PA"));
+        when(repository.getByWarehouse("PA")).thenReturn(
+                List.of(yard(1, "#ff0000", 2, "PA")));
+        index.getByWarehouse("PA");
+        long loaded = index.version("PA");
+
+        // The reload of the warehouse does not have it yet.
+        assertNotNull(index.get(7), "The yard was not found");
+        assertNull(index.get(8), "Found a yard that does not exists");
+
+        assertEquals(loaded, index.version("PA"),
+                "The read changed the version of the warehouse");
+        assertEquals(1, index.getByWarehouse("PA").size(),
+                "The read was indexed as a write");
+        verify(repository, never()).exist(anyInt());
+        verify(repository, times(1)).get(7);
+        verify(repository, times(2)).getByWarehouse("PA");
+    }
+
+    /** Tests that an unknown id is indexed by reloading its warehouse.
+     */
+    @Test
+    public void getUnknownIdReloadsTest() {
+        when(repository.get(7)).thenReturn(yard(7, "#ff0000", 1, "PA"));
+        when(repository.getByWarehouse("PA")).thenReturn(
+                List.of(yard(7, "#ff0000", 1, "PA")));
+
+        assertNotNull(index.get(7), "The yard was not found");
+        assertNotNull(index.get(7), "The yard was not indexed");
+
+        verify(repository, times(1)).get(7);
+        verify(repository, times(1)).getByWarehouse("PA");
+    }
+
+    /** Tests that the version changes with the writes only.
+     */
+    @Test
+    public void versionTest() {
+        when(repository.getAll()).thenReturn(
+                List.of(yard(1, "#ff0000", 1, "PA")));
+        index.rebuild();
+        long loaded = index.version("PA");
+        long all = index.currentVersion();
+
+        index.rebuild();
+        assertEquals(loaded, index.version("PA"),
+                "The version changed without changes in the yards");
+
+        long written = index.put(yard(1, "#ff0000", 1, "PA"));
+        assertTrue(written > loaded, "The version did not change");
+        assertEquals(written, index.version("PA"),
+                "The returned version is not the current one");
+        assertTrue(index.currentVersion() > all,
+                "The version of all the warehouses did not change");
+    }
+
+    /** Tests that a write applied while a warehouse is reloaded is kept,
+     * and the reload is kept too.
+     */
+    @Test
+    public void writeDuringLoadTest() {
+        Yard written = yard(1, "#ff0000", 1, "PA");
+        written.setVersion(2);
+        when(repository.getByWarehouse("PA")).thenAnswer(invocation -> {
+            index.put(written);
+            Yard old = yard(1, "#ff0000", 1, "PA");
+            old.setVersion(1);
+            return List.of(old, yard(2, "#ff0000", 2, "PA"));
+        });
+
+        List<Yard> yards = index.getByWarehouse("PA");
+        index.getByWarehouse("PA");
+
+        assertEquals(2, yards.size(), "The reload was discarded");
+        assertSame(written, index.get(1, "PA"),
+                "The write applied while loading was lost");
+        verify(repository, times(1)).getByWarehouse("PA");
+    }
+
+    /** Tests that an unknown warehouse does not add entries to the index,
+     * and it's not searched while all the warehouses are loaded.
+     */
+    @Test
+    public void unknownWarehouseTest() {
+        when(repository.getByWarehouse("XX")).thenReturn(List.of());
+
+        assertTrue(index.getByWarehouse("XX").isEmpty(),
+                "Found yards in an unknown warehouse");
+        assertEquals(0, index.currentVersion("XX"),
+                "The unknown warehouse has a version");
+        verify(repository, times(2)).getByWarehouse("XX");
+
+        when(repository.getAll()).thenReturn(
+                List.of(yard(1, "#ff0000", 1, "PA")));
+        index.rebuild();
+        assertTrue(index.getByWarehouse("XX").isEmpty(),
+                "Found yards in an unknown warehouse");
+        verify(repository, times(2)).getByWarehouse("XX");
+    }
+}
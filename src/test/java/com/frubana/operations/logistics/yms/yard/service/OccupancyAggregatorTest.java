@@ -0,0 +1,93 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.DockOccupancy;
+import com.frubana.operations.logistics.yms.yard.domain.OccupancyEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the aggregation of the occupancy events of the docks.
+ */
+public class OccupancyAggregatorTest {
+    // The range, of 10 hours.
+    private static final Instant FROM = Instant.parse("2026-10-18T00:00:00Z");
+    private static final Instant END = Instant.parse("2026-10-18T10:00:00Z");
+    // The emitted docks.
+    private List<DockOccupancy> docks;
+    // Subject.
+    private OccupancyAggregator aggregator;
+
+    /** Prepares an aggregator of the range.
+     */
+    @BeforeEach
+    public void setUp() {
+        docks = new ArrayList<>();
+        aggregator = new OccupancyAggregator(FROM, END, docks::add);
+    }
+
+    /** Creates an event of a dock at some hour of the range.
+     */
+    private static OccupancyEvent event(int yardId, boolean occupied,
+                                        int hour) {
+        return new OccupancyEvent(yardId, "PA", "#ff0000", yardId, occupied,
+                1, FROM.plusSeconds(hour * 3600L));
+    }
+
+    /** Tests that the intervals of each dock are computed from its events,
+     * using the state before the range and closing the open intervals at
+     * the end.
+     */
+    @Test
+    public void intervalsTest() {
+        // Occupied before the range, freed at 2 and occupied from 8 to end.
+        aggregator.accept(event(1, true, -3));
+        aggregator.accept(event(1, false, 2));
+        aggregator.accept(event(1, true, 8));
+        // Repeated states are ignored.
+        aggregator.accept(event(2, true, 1));
+        aggregator.accept(event(2, true, 3));
+        aggregator.accept(event(2, false, 6));
+        aggregator.accept(event(2, false, 7));
+        // Free before the range and never occupied.
+        aggregator.accept(event(3, false, -1));
+        aggregator.finish();
+
+        assertEquals(3, docks.size(), "Unexpected number of docks");
+        DockOccupancy first = docks.get(0);
+        assertEquals(1, first.getYardId(), "Unexpected order of the docks");
+        assertEquals(2, first.getIntervals().size(),
+                "Unexpected intervals of the first dock");
+        assertEquals(FROM, first.getIntervals().get(0).getFrom(),
+                "The interval before the range was not clamped");
+        assertEquals(END, first.getIntervals().get(1).getTo(),
+                "The open interval was not closed at the end");
+        assertEquals(4 * 3600, first.getOccupiedSeconds(),
+                "Unexpected occupied time of the first dock");
+        assertEquals(0.4, first.getUtilization(), 1e-9,
+                "Unexpected utilization of the first dock");
+
+        DockOccupancy second = docks.get(1);
+        assertEquals(1, second.getIntervals().size(),
+                "The repeated states were not ignored");
+        assertEquals(5 * 3600, second.getOccupiedSeconds(),
+                "Unexpected occupied time of the second dock");
+
+        DockOccupancy third = docks.get(2);
+        assertTrue(third.getIntervals().isEmpty(),
+                "A free dock has intervals");
+        assertEquals(0, third.getUtilization(), "A free dock is utilized");
+    }
+
+    /** Tests that nothing is emitted without events.
+     */
+    @Test
+    public void emptyTest() {
+        aggregator.finish();
+        assertTrue(docks.isEmpty(), "Emitted a dock without events");
+    }
+}
@@ -0,0 +1,43 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the budget of the retries.
+ */
+public class RetryBudgetTest {
+
+    /** Tests that the initial tokens are spent and then each retry needs
+     * its fraction of calls.
+     */
+    @Test
+    public void retriesAreAFractionOfTheCallsTest() {
+        RetryBudget budget = new RetryBudget(0.25, 2);
+
+        assertTrue(budget.tryRetry(), "The initial tokens were not given");
+        assertTrue(budget.tryRetry(), "The initial tokens were not given");
+        assertFalse(budget.tryRetry(), "The budget was exceeded");
+
+        for (int i = 0; i < 3; i++) {
+            budget.onCall();
+        }
+        assertFalse(budget.tryRetry(), "Retried before four calls");
+        budget.onCall();
+        assertTrue(budget.tryRetry(), "Four calls did not allow a retry");
+    }
+
+    /** Tests that the tokens are capped.
+     */
+    @Test
+    public void tokensAreCappedTest() {
+        RetryBudget budget = new RetryBudget(1, 3);
+
+        for (int i = 0; i < 100; i++) {
+            budget.onCall();
+        }
+
+        assertEquals(3, budget.available(), 0.001,
+                "The tokens were not capped");
+    }
+}
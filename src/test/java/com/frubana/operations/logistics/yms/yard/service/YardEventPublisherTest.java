@@ -0,0 +1,40 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.domain.Yard;
+import com.frubana.operations.logistics.yms.yard.domain.YardEvent;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the channels of the events of the yards.
+ */
+public class YardEventPublisherTest {
+    // Subject.
+    private final YardEventPublisher publisher = new YardEventPublisher();
+
+    /** Tests that the events reach the subscribers and the channel is
+     * removed when the last one cancels.
+     */
+    @Test
+    public void channelIsRemovedWithTheLastSubscriberTest() {
+        List<YardEvent> received = new ArrayList<>();
+        Disposable first = publisher.events("PA").subscribe(received::add);
+        Disposable second = publisher.events("PA").subscribe(received::add);
+        assertEquals(1, publisher.channels(), "Unexpected number of channels");
+
+        Yard yard = new Yard(1, "#ff0000", 1, true);
+        yard.assignWarehouse("PA");
+        publisher.publish(YardEvent.of(YardEvent.Type.OCCUPY, 1, yard));
+        assertEquals(2, received.size(), "The event was not delivered");
+
+        first.dispose();
+        assertEquals(1, publisher.channels(),
+                "The channel was removed with a subscriber left");
+        second.dispose();
+        assertEquals(0, publisher.channels(), "The channel was not removed");
+    }
+}
@@ -0,0 +1,126 @@
+package com.frubana.operations.logistics.yms.yard.service;
+
+import com.frubana.operations.logistics.yms.yard.service.YardRetryPolicies.Operation;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jdbi.v3.core.ConnectionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Tests the retry policies of the yard services.
+ */
+public class YardRetryPoliciesTest {
+    // Registry of the meters.
+    private MeterRegistry registry;
+    // Subject.
+    private YardRetryPolicies policies;
+
+    /** Creates the policies with short waits and a budget of 2 retries.
+     */
+    @BeforeEach
+    public void setUp() {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("yms.retry.budget.ratio", "0")
+                .withProperty("yms.retry.budget.max-tokens", "2");
+        for (Operation operation : Operation.values()) {
+            env.setProperty("yms.retry." + operationName(operation)
+                    + ".initial-interval-ms", "10");
+        }
+        registry = new SimpleMeterRegistry();
+        policies = new YardRetryPolicies(RetryRegistry.ofDefaults(), env,
+                registry);
+    }
+
+    /** Obtains the name of an operation in the properties.
+     */
+    private static String operationName(Operation operation) {
+        switch (operation) {
+            case READ:
+                return "read";
+            case IDEMPOTENT_WRITE:
+                return "idempotentWrite";
+            default:
+                return "write";
+        }
+    }
+
+    /** Tests that the errors of the request are not retried.
+     */
+    @Test
+    public void validationErrorsAreNotRetriedTest() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(NumberFormatException.class,
+                () -> policies.call(Operation.READ, () -> {
+                    attempts.incrementAndGet();
+                    return Integer.parseInt("not a number");
+                }), "Unexpected exception");
+        assertEquals(1, attempts.get(), "The validation error was retried");
+        assertFalse(policies.isRetryable(Operation.READ, new RuntimeException(
+                        new SQLException("duplicated", "23505"))),
+                "The integrity violation is retryable");
+    }
+
+    /** Tests that the writes that cannot be applied twice are only retried
+     * if they were not applied.
+     */
+    @Test
+    public void writesAreRetriedOnlyIfNotAppliedTest() {
+        assertFalse(policies.isRetryable(Operation.WRITE,
+                new RuntimeException("connection lost")),
+                "A write that could be applied is retryable");
+        assertTrue(policies.isRetryable(Operation.WRITE,
+                new ConnectionException(new SQLException("refused"))),
+                "A write without connection is not retryable");
+        assertTrue(policies.isRetryable(Operation.IDEMPOTENT_WRITE,
+                new RuntimeException("connection lost")),
+                "An idempotent write is not retryable");
+    }
+
+    /** Tests that the retries stop when the budget is spent.
+     */
+    @Test
+    public void budgetLimitsTheRetriesTest() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class,
+                    () -> policies.call(Operation.READ, () -> {
+                        attempts.incrementAndGet();
+                        throw new RuntimeException("database down");
+                    }), "Unexpected exception");
+        }
+
+        assertEquals(5, attempts.get(),
+                "The retries were not limited by the budget");
+    }
+
+    /** Tests that the last failed attempt of a call does not take a token
+     * of the budget.
+     */
+    @Test
+    public void lastAttemptDoesNotSpendTheBudgetTest() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(RuntimeException.class,
+                () -> policies.call(Operation.READ, () -> {
+                    attempts.incrementAndGet();
+                    throw new RuntimeException("database down");
+                }), "Unexpected exception");
+
+        assertEquals(3, attempts.get(), "Unexpected number of attempts");
+        assertEquals(0, registry.get("yms.retry.budget.exhausted")
+                        .counter().count(),
+                "The last attempt was counted as a retry without budget");
+        assertEquals(0, registry.get("yms.retry.budget.available")
+                        .gauge().value(), 0.001,
+                "Unexpected tokens left");
+    }
+}